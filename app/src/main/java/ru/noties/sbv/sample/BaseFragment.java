@@ -19,7 +19,6 @@ package ru.noties.sbv.sample;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
-import android.support.v4.content.ContextCompat;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -45,7 +44,7 @@ public abstract class BaseFragment extends Fragment {
     }
 
     public void setDrawable(int drawable) {
-        setDrawable(ContextCompat.getDrawable(getContext(), drawable));
+        mScrollingBackgroundView.setDrawableResource(drawable);
     }
 
     protected ScrollingBackgroundView scrollingBackgroundView() {
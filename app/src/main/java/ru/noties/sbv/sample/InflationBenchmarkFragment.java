@@ -0,0 +1,89 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.sample;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+// compares inflation time of a layout with several backgrounds: eager vs `sbv_lazyLoad`
+public class InflationBenchmarkFragment extends Fragment {
+
+    private static final int WARM_UP = 3;
+    private static final int RUNS = 20;
+
+    // number of ScrollingBackgroundViews in each benchmark layout
+    private static final int BACKGROUNDS = 6;
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle sis) {
+        return inflater.inflate(R.layout.fragment_inflation_benchmark, parent, false);
+    }
+
+    @Override
+    public void onViewCreated(View view, Bundle sis) {
+        super.onViewCreated(view, sis);
+
+        final ViewGroup parent = (ViewGroup) view.findViewById(R.id.fragment_inflation_benchmark_parent);
+        final TextView results = (TextView) view.findViewById(R.id.fragment_inflation_benchmark_results);
+
+        view.findViewById(R.id.fragment_inflation_benchmark_run).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                run(parent, results);
+            }
+        });
+    }
+
+    private void run(ViewGroup parent, TextView results) {
+
+        final LayoutInflater inflater = LayoutInflater.from(getContext());
+
+        // class loading, layout parsing, etc
+        for (int i = 0; i < WARM_UP; i++) {
+            measure(inflater, R.layout.layout_inflation_benchmark_eager, parent);
+            measure(inflater, R.layout.layout_inflation_benchmark_lazy, parent);
+        }
+
+        long eager = 0L;
+        long lazy = 0L;
+
+        // interleaved, so GC & JIT affect both the same way
+        for (int i = 0; i < RUNS; i++) {
+            eager += measure(inflater, R.layout.layout_inflation_benchmark_eager, parent);
+            lazy += measure(inflater, R.layout.layout_inflation_benchmark_lazy, parent);
+        }
+
+        results.setText(getString(
+                R.string.inflation_benchmark_results,
+                BACKGROUNDS,
+                RUNS,
+                eager / RUNS / 1E6,
+                lazy / RUNS / 1E6
+        ));
+    }
+
+    // inflated views are never attached, so lazy ones never load their drawables (as views of off-screen pages)
+    private static long measure(LayoutInflater inflater, int layout, ViewGroup parent) {
+        final long start = System.nanoTime();
+        inflater.inflate(layout, parent, false);
+        return System.nanoTime() - start;
+    }
+}
@@ -64,7 +64,9 @@ public class MainActivity extends AppCompatActivity {
                 new Item("Space Explorer", SpaceExplorerFragment.class.getName()),
                 new Item("Parallax", ParallaxFragment.class.getName()),
                 new Item("Recycler View", RecyclerFragment.class.getName()),
-                new Item("View Pager", ViewPagerFragment.class.getName())
+                new Item("View Pager", ViewPagerFragment.class.getName()),
+                new Item("Inflation Benchmark", InflationBenchmarkFragment.class.getName()),
+                new Item("Render Thread", RenderThreadFragment.class.getName())
         );
     }
 
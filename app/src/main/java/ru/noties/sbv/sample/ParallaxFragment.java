@@ -16,9 +16,8 @@
 
 package ru.noties.sbv.sample;
 
-import android.animation.FloatEvaluator;
-import android.animation.ValueAnimator;
 import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -27,6 +26,9 @@ import ru.noties.sbv.ScrollingBackgroundView;
 
 public class ParallaxFragment extends BaseFragment {
 
+    // steps were initially applied each frame
+    private static final int FRAMES_PER_SECOND = 60;
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle sis) {
         return inflater.inflate(R.layout.fragment_parallax, parent, false);
@@ -38,37 +40,9 @@ public class ParallaxFragment extends BaseFragment {
 
         final int step = getResources().getDimensionPixelSize(R.dimen.space_explorer_step);
 
-        {
-            final ScrollingBackgroundView clouds = findView(view, R.id.fragment_parallax_clouds);
-            setUp(clouds, step, 1.F);
-        }
-
-        {
-            final ScrollingBackgroundView birds = findView(view, R.id.fragment_parallax_bird);
-            setUp(birds, step, 1.5F);
-        }
-    }
-
-    private void setUp(final ScrollingBackgroundView view, final int step, final float speed) {
-        view.postOnAnimation(new Runnable() {
-            @Override
-            public void run() {
-                final ValueAnimator animator = ValueAnimator.ofFloat(.0F, 1.F);
-                animator.setEvaluator(new FloatEvaluator());
-                animator.setDuration(400L);
-                animator.setRepeatMode(ValueAnimator.RESTART);
-                animator.setRepeatCount(ValueAnimator.INFINITE);
-                animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                    @Override
-                    public void onAnimationUpdate(ValueAnimator animation) {
-                        view.scrollBy(
-                                (int) (step * speed + .5F),
-                                0
-                        );
-                    }
-                });
-                animator.start();
-            }
-        });
+        // clouds are the main drawable (speed 1), birds are drawn above with 1.5 speed
+        final ScrollingBackgroundView backgroundView = scrollingBackgroundView();
+        backgroundView.addLayer(ContextCompat.getDrawable(getContext(), R.drawable.tile_bird), 1.5F, 1.F);
+        backgroundView.setScrollVelocity(step * FRAMES_PER_SECOND, .0F);
     }
 }
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Random;
 
 import ru.noties.sbv.ScrollingBackgroundView;
+import ru.noties.sbv.binder.ScrollBinder;
 
 public class RecyclerFragment extends BaseFragment {
 
@@ -42,19 +43,13 @@ public class RecyclerFragment extends BaseFragment {
     public void onViewCreated(View view, Bundle sis) {
         super.onViewCreated(view, sis);
 
+        // chat bubbles are laid out as bricks, layout is set before the drawable is loaded
+        scrollingBackgroundView().setTileLayout(ScrollingBackgroundView.TILE_LAYOUT_BRICK_X);
         setDrawable(R.drawable.tile_chat);
 
         final RecyclerView recyclerView = findView(view, R.id.recycler_view);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
-
-            final ScrollingBackgroundView scrollingBackgroundView = scrollingBackgroundView();
-
-            @Override
-            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
-                scrollingBackgroundView.scrollBy(dx, dy);
-            }
-        });
+        ScrollBinder.bind(recyclerView, scrollingBackgroundView(), 1.F, 1.F);
         recyclerView.setAdapter(new Adapter(getContext()));
     }
 
@@ -0,0 +1,62 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.sample;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.v4.app.Fragment;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import ru.noties.sbv.ScrollingBackgroundSurfaceView;
+import ru.noties.sbv.ScrollingBackgroundView;
+
+// the same velocity scrolling drawn on the main thread (top) and on a render thread (bottom)
+public class RenderThreadFragment extends Fragment {
+
+    private static final float VELOCITY = 240.F;
+
+    // long enough to be noticed, short enough not to trigger ANR
+    private static final long BLOCK_MILLIS = 1000L;
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle sis) {
+        return inflater.inflate(R.layout.fragment_render_thread, parent, false);
+    }
+
+    @Override
+    public void onViewCreated(View view, Bundle sis) {
+        super.onViewCreated(view, sis);
+
+        final ScrollingBackgroundView backgroundView =
+                (ScrollingBackgroundView) view.findViewById(R.id.fragment_render_thread_view);
+        backgroundView.setScrollVelocity(VELOCITY, VELOCITY);
+
+        final ScrollingBackgroundSurfaceView surfaceView =
+                (ScrollingBackgroundSurfaceView) view.findViewById(R.id.fragment_render_thread_surface_view);
+        surfaceView.setScrollVelocity(VELOCITY, VELOCITY);
+
+        view.findViewById(R.id.fragment_render_thread_block).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                // top background freezes, bottom one keeps moving
+                SystemClock.sleep(BLOCK_MILLIS);
+            }
+        });
+    }
+}
@@ -16,26 +16,27 @@
 
 package ru.noties.sbv.sample;
 
-import android.animation.FloatEvaluator;
-import android.animation.ValueAnimator;
 import android.content.res.Resources;
 import android.os.Bundle;
+import android.view.GestureDetector;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.LinearInterpolator;
 import android.widget.TextView;
 
 import ru.noties.sbv.ScrollingBackgroundView;
 
 public class SpaceExplorerFragment extends BaseFragment {
 
+    // steps were initially applied each frame
+    private static final int FRAMES_PER_SECOND = 60;
+
     private int mVerticalStep;
     private int mHorizontalStep;
 
     private float mSpeed = 1.F;
 
-    private ValueAnimator mValueAnimator;
     private View mShipView;
 
     @Override
@@ -49,6 +50,8 @@ public class SpaceExplorerFragment extends BaseFragment {
 
         setDrawable(R.drawable.tile_space);
 
+        mShipView = findView(view, R.id.fragment_space_explorer_ship);
+
         final Resources r = getResources();
         final int step = r.getDimensionPixelSize(R.dimen.space_explorer_step);
 
@@ -96,37 +99,55 @@ public class SpaceExplorerFragment extends BaseFragment {
                 public void onClick(View v) {
                     mSpeed = speed.next();
                     speedTextView.setText(r.getString(R.string.space_explorer_speed, mSpeed));
+                    animate();
                 }
             });
             speedTextView.callOnClick();
         }
 
-        mShipView = findView(view, R.id.fragment_space_explorer_ship);
-    }
-
-    private void animate() {
+        // drag & fling space around (in addition to the ship movement)
+        {
+            final ScrollingBackgroundView backgroundView = scrollingBackgroundView();
+            final GestureDetector detector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
 
-        if (mValueAnimator == null
-                || !mValueAnimator.isRunning()) {
+                @Override
+                public boolean onDown(MotionEvent e) {
+                    backgroundView.stopFling();
+                    return true;
+                }
 
-            final ScrollingBackgroundView backgroundView = scrollingBackgroundView();
+                @Override
+                public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                    backgroundView.scrollBy((int) distanceX, (int) distanceY);
+                    return true;
+                }
 
-            mValueAnimator = ValueAnimator.ofFloat(.0F, 1.F);
-            mValueAnimator.setRepeatCount(ValueAnimator.INFINITE);
-            mValueAnimator.setRepeatMode(ValueAnimator.RESTART);
-            mValueAnimator.setEvaluator(new FloatEvaluator());
-            mValueAnimator.setInterpolator(new LinearInterpolator());
-            mValueAnimator.setDuration(400L);
-            mValueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
                 @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    final int x = (int) (mHorizontalStep * mSpeed + .5F);
-                    final int y = (int) (mVerticalStep * mSpeed + .5F);
-                    backgroundView.scrollBy(x, y);
-                    mShipView.setRotation(shipRotation(x, y));
+                public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                    backgroundView.fling(-velocityX, -velocityY);
+                    return true;
+                }
+            });
+            backgroundView.setOnTouchListener(new View.OnTouchListener() {
+                @Override
+                public boolean onTouch(View v, MotionEvent event) {
+                    return detector.onTouchEvent(event);
                 }
             });
-            mValueAnimator.start();
+        }
+    }
+
+    private void animate() {
+
+        final ScrollingBackgroundView backgroundView = scrollingBackgroundView();
+
+        final float x = mHorizontalStep * mSpeed * FRAMES_PER_SECOND;
+        final float y = mVerticalStep * mSpeed * FRAMES_PER_SECOND;
+        backgroundView.setScrollVelocity(x, y);
+
+        // keep the last direction if we have stopped
+        if (mHorizontalStep != 0 || mVerticalStep != 0) {
+            mShipView.setRotation(shipRotation(mHorizontalStep, mVerticalStep));
         }
     }
 
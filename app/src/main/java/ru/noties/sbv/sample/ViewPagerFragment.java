@@ -19,10 +19,7 @@ package ru.noties.sbv.sample;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.support.v4.content.ContextCompat;
 import android.support.v4.view.PagerAdapter;
 import android.support.v4.view.ViewPager;
 import android.view.LayoutInflater;
@@ -30,8 +27,9 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import ru.noties.ccf.CCFAnimator;
 import ru.noties.sbv.ScrollingBackgroundView;
+import ru.noties.sbv.TintRamp;
+import ru.noties.sbv.binder.ScrollBinder;
 
 public class ViewPagerFragment extends BaseFragment {
 
@@ -46,11 +44,14 @@ public class ViewPagerFragment extends BaseFragment {
 
         final ViewPager viewPager = findView(view, R.id.view_pager);
         viewPager.setAdapter(new Adapter(getContext()));
+
+        // background scrolls with half of the pager speed
+        ScrollBinder.bind(viewPager, scrollingBackgroundView(), .5F, .0F);
+
         viewPager.addOnPageChangeListener(new ViewPager.OnPageChangeListener() {
 
-            final Drawable drawable = ContextCompat.getDrawable(getActivity(), R.drawable.tile_pager).mutate();
             final ScrollingBackgroundView scrollingBackgroundView = scrollingBackgroundView();
-            final CCFAnimator ccfAnimator = CCFAnimator.rgb(new int[] {
+            final TintRamp tintRamp = new TintRamp(new int[] {
                     0xFFef9a9a,
                     0xFFf48fb1,
                     0xFFce93d8,
@@ -61,10 +62,10 @@ public class ViewPagerFragment extends BaseFragment {
                     0xFF80deea,
                     0xFF80cbc4,
                     0xFFa5d6a7
-            });
+            }, 128);
             {
-                setColor(drawable, ccfAnimator.getColor(.0F));
-                scrollingBackgroundView.setDrawable(drawable);
+                setDrawable(R.drawable.tile_pager);
+                setColor(tintRamp.color(.0F));
             }
 
             @Override
@@ -75,11 +76,7 @@ public class ViewPagerFragment extends BaseFragment {
                 final float step = (float) (position + 1) / count;
                 final float ratio = step + (positionOffset / count);
 
-                if (positionOffsetPixels != 0) {
-                    scrollingBackgroundView.scrollTo(positionOffsetPixels / 2, 0);
-                }
-
-                setColor(drawable, ccfAnimator.getColor(ratio));
+                setColor(tintRamp.color(ratio));
             }
 
             @Override
@@ -92,8 +89,9 @@ public class ViewPagerFragment extends BaseFragment {
 
             }
 
-            private void setColor(Drawable drawable, int color) {
-                drawable.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.MULTIPLY));
+            private void setColor(int color) {
+                // no-op if color has not changed, filter for each ramp color is created once
+                scrollingBackgroundView.setTileTint(color, PorterDuff.Mode.MULTIPLY);
             }
         });
     }
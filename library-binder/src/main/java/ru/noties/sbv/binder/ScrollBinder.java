@@ -0,0 +1,291 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.binder;
+
+import android.support.v4.view.ViewPager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import ru.noties.sbv.ScrollingBackgroundView;
+
+/**
+ * Redirects scroll events of a scroll container to a {@link ScrollingBackgroundView}.
+ * Scroll deltas are multiplied by ratios and applied to the background right away
+ * (fractional pixels are carried over to the next event), background itself redraws
+ * at most once per frame. Nothing is allocated per scroll event.
+ * Binder unbinds itself when either view is detached from window.
+ * Must be used from the main thread
+ *
+ * @see #bind(RecyclerView, ScrollingBackgroundView, float, float)
+ * @see #bind(ViewPager, ScrollingBackgroundView, float, float)
+ * @see #bind(View, ScrollingBackgroundView, float, float)
+ */
+public abstract class ScrollBinder {
+
+    /**
+     * @param recyclerView to listen for scroll events
+     * @param backgroundView to be scrolled
+     * @param ratioX horizontal scroll multiplier
+     * @param ratioY vertical scroll multiplier
+     * @return bound binder
+     */
+    public static ScrollBinder bind(RecyclerView recyclerView, ScrollingBackgroundView backgroundView, float ratioX, float ratioY) {
+        final ScrollBinder binder = new RecyclerViewBinder(recyclerView, backgroundView, ratioX, ratioY);
+        binder.bind();
+        return binder;
+    }
+
+    /**
+     * Pages are treated as one continuous horizontal strip, so the background scrolls
+     * by the page width (including page margin) when the next page is selected
+     * @param viewPager to listen for page scroll events
+     * @param backgroundView to be scrolled
+     * @param ratioX horizontal scroll multiplier
+     * @param ratioY vertical scroll multiplier (ViewPager scrolls horizontally, so
+     *               a non-zero value turns horizontal scroll into vertical)
+     * @return bound binder
+     */
+    public static ScrollBinder bind(ViewPager viewPager, ScrollingBackgroundView backgroundView, float ratioX, float ratioY) {
+        final ScrollBinder binder = new ViewPagerBinder(viewPager, backgroundView, ratioX, ratioY);
+        binder.bind();
+        return binder;
+    }
+
+    /**
+     * Binds any View that scrolls its content via {@link View#scrollTo(int, int)}, for example
+     * {@link android.widget.ScrollView}, {@link android.widget.HorizontalScrollView} or
+     * {@link android.support.v4.widget.NestedScrollView}
+     * @param scrollingView to listen for scroll changes
+     * @param backgroundView to be scrolled
+     * @param ratioX horizontal scroll multiplier
+     * @param ratioY vertical scroll multiplier
+     * @return bound binder
+     */
+    public static ScrollBinder bind(View scrollingView, ScrollingBackgroundView backgroundView, float ratioX, float ratioY) {
+        final ScrollBinder binder = new ScrollingViewBinder(scrollingView, backgroundView, ratioX, ratioY);
+        binder.bind();
+        return binder;
+    }
+
+    private final View mScrollingView;
+    private final ScrollingBackgroundView mBackgroundView;
+    private final float mRatioX;
+    private final float mRatioY;
+
+    private final Callbacks mCallbacks;
+
+    // fractional pixels that are not applied yet
+    private float mRemainderX;
+    private float mRemainderY;
+
+    private boolean mBound;
+
+    ScrollBinder(View scrollingView, ScrollingBackgroundView backgroundView, float ratioX, float ratioY) {
+        mScrollingView = scrollingView;
+        mBackgroundView = backgroundView;
+        mRatioX = ratioX;
+        mRatioY = ratioY;
+        mCallbacks = new Callbacks();
+    }
+
+    /**
+     * Stops redirecting scroll events. Is called automatically when any of the views is detached from window
+     */
+    public void unbind() {
+        if (mBound) {
+            mBound = false;
+            mScrollingView.removeOnAttachStateChangeListener(mCallbacks);
+            mBackgroundView.removeOnAttachStateChangeListener(mCallbacks);
+            mRemainderX = mRemainderY = .0F;
+            onUnbind();
+        }
+    }
+
+    /**
+     * @return if this binder still redirects scroll events
+     */
+    public boolean isBound() {
+        return mBound;
+    }
+
+    abstract void onBind();
+
+    abstract void onUnbind();
+
+    /**
+     * Must be called by implementations when scroll container has scrolled
+     */
+    void onScrolled(int dx, int dy) {
+        if (mBound
+                && (dx != 0 || dy != 0)) {
+
+            final float x = mRemainderX + dx * mRatioX;
+            final float y = mRemainderY + dy * mRatioY;
+
+            final int scrollX = (int) x;
+            final int scrollY = (int) y;
+
+            mRemainderX = x - scrollX;
+            mRemainderY = y - scrollY;
+
+            if (scrollX != 0 || scrollY != 0) {
+                mBackgroundView.scrollBy(scrollX, scrollY);
+            }
+        }
+    }
+
+    private void bind() {
+        mBound = true;
+        mScrollingView.addOnAttachStateChangeListener(mCallbacks);
+        mBackgroundView.addOnAttachStateChangeListener(mCallbacks);
+        onBind();
+    }
+
+    private class Callbacks implements View.OnAttachStateChangeListener {
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            unbind();
+        }
+    }
+
+    private static class RecyclerViewBinder extends ScrollBinder {
+
+        private final RecyclerView mRecyclerView;
+        private final RecyclerView.OnScrollListener mOnScrollListener;
+
+        RecyclerViewBinder(RecyclerView recyclerView, ScrollingBackgroundView backgroundView, float ratioX, float ratioY) {
+            super(recyclerView, backgroundView, ratioX, ratioY);
+            mRecyclerView = recyclerView;
+            mOnScrollListener = new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                    RecyclerViewBinder.this.onScrolled(dx, dy);
+                }
+            };
+        }
+
+        @Override
+        void onBind() {
+            mRecyclerView.addOnScrollListener(mOnScrollListener);
+        }
+
+        @Override
+        void onUnbind() {
+            mRecyclerView.removeOnScrollListener(mOnScrollListener);
+        }
+    }
+
+    private static class ViewPagerBinder extends ScrollBinder {
+
+        private final ViewPager mViewPager;
+        private final ViewPager.OnPageChangeListener mOnPageChangeListener;
+
+        // is not known until ViewPager is laid out (and changes with its size)
+        private int mPageWidth;
+        private int mLastScroll;
+
+        // position + offset of the last event
+        private float mLastPage;
+
+        ViewPagerBinder(ViewPager viewPager, ScrollingBackgroundView backgroundView, float ratioX, float ratioY) {
+            super(viewPager, backgroundView, ratioX, ratioY);
+            mViewPager = viewPager;
+            mOnPageChangeListener = new ViewPager.SimpleOnPageChangeListener() {
+                @Override
+                public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+                    final int pageWidth = pageWidth();
+                    if (mPageWidth != pageWidth) {
+                        mPageWidth = pageWidth;
+                        mLastScroll = Math.round(mLastPage * pageWidth);
+                    }
+                    final int scroll = position * pageWidth + positionOffsetPixels;
+                    final int delta = scroll - mLastScroll;
+                    mLastScroll = scroll;
+                    mLastPage = position + positionOffset;
+                    // ViewPager scrolls horizontally only
+                    ViewPagerBinder.this.onScrolled(delta, delta);
+                }
+            };
+        }
+
+        @Override
+        void onBind() {
+            mLastPage = mViewPager.getCurrentItem();
+            mPageWidth = 0;
+            mViewPager.addOnPageChangeListener(mOnPageChangeListener);
+        }
+
+        @Override
+        void onUnbind() {
+            mViewPager.removeOnPageChangeListener(mOnPageChangeListener);
+        }
+
+        private int pageWidth() {
+            return mViewPager.getWidth() - mViewPager.getPaddingLeft() - mViewPager.getPaddingRight()
+                    + mViewPager.getPageMargin();
+        }
+    }
+
+    private static class ScrollingViewBinder extends ScrollBinder {
+
+        private final View mScrollingView;
+        private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener;
+
+        private int mLastScrollX;
+        private int mLastScrollY;
+
+        ScrollingViewBinder(View scrollingView, ScrollingBackgroundView backgroundView, float ratioX, float ratioY) {
+            super(scrollingView, backgroundView, ratioX, ratioY);
+            mScrollingView = scrollingView;
+            mOnScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    // is dispatched for any scroll change in the window, so we check our view
+                    final int scrollX = mScrollingView.getScrollX();
+                    final int scrollY = mScrollingView.getScrollY();
+                    final int dx = scrollX - mLastScrollX;
+                    final int dy = scrollY - mLastScrollY;
+                    mLastScrollX = scrollX;
+                    mLastScrollY = scrollY;
+                    ScrollingViewBinder.this.onScrolled(dx, dy);
+                }
+            };
+        }
+
+        @Override
+        void onBind() {
+            mLastScrollX = mScrollingView.getScrollX();
+            mLastScrollY = mScrollingView.getScrollY();
+            mScrollingView.getViewTreeObserver().addOnScrollChangedListener(mOnScrollChangedListener);
+        }
+
+        @Override
+        void onUnbind() {
+            final ViewTreeObserver observer = mScrollingView.getViewTreeObserver();
+            if (observer.isAlive()) {
+                observer.removeOnScrollChangedListener(mOnScrollChangedListener);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package ru.noties.sbv.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scroll state updates: a frame worth of scroll deltas followed by the phase check
+ * that decides if a redraw is needed, and velocity integration for a frame (with and without frame rate cap)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScrollStateBenchmark {
+
+    private static final long FRAME_NANOS = 16666667L;
+
+    // number of scroll events that arrive during one frame
+    @Param({"1", "4", "16"})
+    public int events;
+
+    @Param({"7", "64", "512"})
+    public int tile;
+
+    @Param({"0", "-2147483648", "2147483000"})
+    public int initialScroll;
+
+    private int mScrollX;
+    private int mScrollY;
+
+    private float mDrawnStartX;
+    private float mDrawnStartY;
+
+    private VelocityIntegrator mIntegrator;
+    private FrameThrottle mThrottle;
+    private long mFrameTimeNanos;
+
+    @Setup
+    public void setUp() {
+        mScrollX = mScrollY = initialScroll;
+        mDrawnStartX = TileGeometry.start(mScrollX, (float) tile);
+        mDrawnStartY = TileGeometry.start(mScrollY, (float) tile);
+        mIntegrator = new VelocityIntegrator();
+        mIntegrator.setVelocity(180.F, -97.5F);
+        mThrottle = new FrameThrottle();
+        mThrottle.setFrameRate(30);
+        mFrameTimeNanos = FRAME_NANOS;
+    }
+
+    @Benchmark
+    public boolean scrollFrame() {
+
+        for (int i = 0; i < events; i++) {
+            // deltas of alternating sign, overflow at extreme values is intended
+            mScrollX += (i & 1) == 0 ? 3 : -1;
+            mScrollY += (i & 1) == 0 ? -2 : 5;
+        }
+
+        // the same phase check as the one of the renderer
+        final float startX = TileGeometry.start(mScrollX, (float) tile);
+        final float startY = TileGeometry.start(mScrollY, (float) tile);
+
+        final boolean changed = Float.compare(startX, mDrawnStartX) != 0
+                || Float.compare(startY, mDrawnStartY) != 0;
+
+        mDrawnStartX = startX;
+        mDrawnStartY = startY;
+
+        return changed;
+    }
+
+    @Benchmark
+    public boolean velocityFrame() {
+        mFrameTimeNanos += FRAME_NANOS;
+        return mIntegrator.integrate(mFrameTimeNanos);
+    }
+
+    @Benchmark
+    public boolean throttledVelocityFrame() {
+        mFrameTimeNanos += FRAME_NANOS;
+        return mThrottle.accept(mFrameTimeNanos)
+                && mIntegrator.integrate(mFrameTimeNanos);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package ru.noties.sbv.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase computation & visible tiles enumeration for different screen/tile sizes and scroll values
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TileGeometryBenchmark {
+
+    // screen width x height : tile width x tile height
+    @Param({"720x1280:512x512", "1080x1920:64x64", "1440x2560:32x32", "2560x1600:7x13"})
+    public String mix;
+
+    @Param({"0", "12345", "-12345", "2147483647", "-2147483648"})
+    public int scroll;
+
+    private int mWidth;
+    private int mHeight;
+    private float mTileWidth;
+    private float mTileHeight;
+
+    // inverse of the linear part of a 30 degrees pattern rotation
+    private double[] mPatternInverse;
+
+    // partially covered view: toolbar on top & bottom sheet
+    private int mAreaTop;
+    private int mAreaBottom;
+
+    @Setup
+    public void setUp() {
+        final String[] sizes = mix.split(":");
+        final String[] screen = sizes[0].split("x");
+        final String[] tile = sizes[1].split("x");
+        mWidth = Integer.parseInt(screen[0]);
+        mHeight = Integer.parseInt(screen[1]);
+        mTileWidth = Integer.parseInt(tile[0]);
+        mTileHeight = Integer.parseInt(tile[1]);
+        final double radians = Math.toRadians(30);
+        final double cos = Math.cos(radians);
+        final double sin = Math.sin(radians);
+        mPatternInverse = new double[]{cos, sin, -sin, cos};
+        mAreaTop = mHeight / 10;
+        mAreaBottom = mHeight / 2;
+    }
+
+    @Benchmark
+    public float phase() {
+        return TileGeometry.start(scroll, mTileWidth) + TileGeometry.start(scroll, mTileHeight);
+    }
+
+    // fractional (zoomed) tile size
+    @Benchmark
+    public float phaseScaled() {
+        return TileGeometry.start(scroll, mTileWidth * 1.37F) + TileGeometry.start(scroll, mTileHeight * 1.37F);
+    }
+
+    // scroll mapped into a rotated pattern space
+    @Benchmark
+    public float phasePattern() {
+        final double[] inverse = mPatternInverse;
+        return TileGeometry.start(inverse[0] * scroll + inverse[1] * scroll, mTileWidth)
+                + TileGeometry.start(inverse[2] * scroll + inverse[3] * scroll, mTileHeight);
+    }
+
+    @Benchmark
+    public void visibleTilesFull(Blackhole blackhole) {
+        enumerate(0, 0, mWidth, mHeight, blackhole);
+    }
+
+    @Benchmark
+    public void visibleTilesClipped(Blackhole blackhole) {
+        enumerate(0, mAreaTop, mWidth, mAreaBottom, blackhole);
+    }
+
+    // mirrors tile loop of the renderer
+    private void enumerate(int left, int top, int right, int bottom, Blackhole blackhole) {
+
+        final float startX = TileGeometry.start(scroll, mTileWidth);
+        final float startY = TileGeometry.start(scroll, mTileHeight);
+
+        final int fromX = TileGeometry.skip(left, startX, mTileWidth);
+        final int toX = TileGeometry.iterations(right, startX, mTileWidth);
+
+        final int fromY = TileGeometry.skip(top, startY, mTileHeight);
+        final int toY = TileGeometry.iterations(bottom, startY, mTileHeight);
+
+        for (int x = fromX; x < toX; x++) {
+            for (int y = fromY; y < toY; y++) {
+                blackhole.consume(startX + x * mTileWidth);
+                blackhole.consume(startY + y * mTileHeight);
+            }
+        }
+    }
+}
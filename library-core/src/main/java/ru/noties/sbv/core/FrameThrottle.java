@@ -0,0 +1,148 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.core;
+
+/**
+ * Caps the rate at which a frame callback does its work. Frame time is supplied by the caller
+ * (Choreographer frame time in production, any monotonic value otherwise), so there is no clock
+ * dependency. Frames that arrive a bit early (vsync jitter) are still accepted, so 30 fps on
+ * a 60 Hz display is exactly every other frame. Does not allocate
+ */
+public class FrameThrottle {
+
+    /**
+     * Every frame is accepted
+     */
+    public static final int FRAME_RATE_UNLIMITED = 0;
+
+    /**
+     * No frame is accepted
+     */
+    public static final int FRAME_RATE_STATIC = -1;
+
+    private static final long NANOS_IN_SECOND = 1000000000L;
+    private static final long NANOS_IN_MILLI = 1000000L;
+
+    // 0 when every frame is accepted
+    private long mIntervalNanos;
+    private boolean mStatic;
+
+    private long mLastFrameTimeNanos;
+
+    /**
+     * Frame rate to be used when a regular cap and a power save cap are both set: the stricter one wins
+     * @param maxFrameRate regular cap, positive value, {@link #FRAME_RATE_UNLIMITED} or {@link #FRAME_RATE_STATIC}
+     * @param powerSaveFrameRate cap for power save mode, the same values as `maxFrameRate`
+     * @param powerSaveMode if device is in power save mode
+     * @return frame rate in effect
+     */
+    public static int frameRate(int maxFrameRate, int powerSaveFrameRate, boolean powerSaveMode) {
+
+        if (!powerSaveMode) {
+            return maxFrameRate;
+        }
+
+        if (maxFrameRate == FRAME_RATE_STATIC
+                || powerSaveFrameRate == FRAME_RATE_STATIC) {
+            return FRAME_RATE_STATIC;
+        }
+        if (maxFrameRate == FRAME_RATE_UNLIMITED) {
+            return powerSaveFrameRate;
+        }
+        if (powerSaveFrameRate == FRAME_RATE_UNLIMITED) {
+            return maxFrameRate;
+        }
+        return Math.min(maxFrameRate, powerSaveFrameRate);
+    }
+
+    /**
+     * @param framesPerSecond maximum number of accepted frames per second, {@link #FRAME_RATE_UNLIMITED}
+     *                        to accept every frame or {@link #FRAME_RATE_STATIC} to accept none
+     */
+    public void setFrameRate(int framesPerSecond) {
+        mStatic = framesPerSecond < FRAME_RATE_UNLIMITED;
+        mIntervalNanos = framesPerSecond > 0
+                ? NANOS_IN_SECOND / framesPerSecond
+                : 0L;
+    }
+
+    /**
+     * @return if some frames can be skipped
+     */
+    public boolean isThrottling() {
+        return mStatic || mIntervalNanos > 0L;
+    }
+
+    /**
+     * @return if no frame is accepted, callers should not request frames at all
+     */
+    public boolean isStatic() {
+        return mStatic;
+    }
+
+    /**
+     * Forgets last accepted frame, so the next frame is accepted
+     */
+    public void reset() {
+        mLastFrameTimeNanos = 0L;
+    }
+
+    /**
+     * @param frameTimeNanos time of the current frame
+     * @return if work should be done for this frame. If true, this frame is remembered as the last accepted one
+     */
+    public boolean accept(long frameTimeNanos) {
+
+        if (mStatic) {
+            return false;
+        }
+
+        if (mIntervalNanos == 0L
+                || mLastFrameTimeNanos == 0L
+                || frameTimeNanos - mLastFrameTimeNanos >= mIntervalNanos - slack()) {
+            mLastFrameTimeNanos = frameTimeNanos;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Lets caller sleep instead of being woken up on each vsync until the next frame can be accepted.
+     * Delay is a bit shorter than needed, so the next acceptable frame is never missed
+     * @param nowNanos current time (the same clock as frame time)
+     * @return delay in milliseconds before the next frame should be requested, 0 to request it right away
+     * (static throttle never accepts a frame, it should not be asked)
+     */
+    public long delayMillis(long nowNanos) {
+
+        if (mIntervalNanos == 0L
+                || mLastFrameTimeNanos == 0L) {
+            return 0L;
+        }
+
+        final long delay = mLastFrameTimeNanos + mIntervalNanos - 2 * slack() - nowNanos;
+        return delay > 0L
+                ? delay / NANOS_IN_MILLI
+                : 0L;
+    }
+
+    // a frame that is this much early is accepted (less than a half of a vsync for common rates)
+    private long slack() {
+        return mIntervalNanos / 8;
+    }
+}
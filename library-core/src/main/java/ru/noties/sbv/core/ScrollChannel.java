@@ -0,0 +1,94 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free channel for scroll position and velocity shared by a producer (main thread that receives
+ * scroll events) and a render thread. Both axes are packed into a single long, so a reader never sees
+ * x of one update with y of another. Does not allocate
+ */
+public class ScrollChannel {
+
+    private final AtomicLong mScroll = new AtomicLong();
+    private final AtomicLong mVelocity = new AtomicLong();
+
+    /**
+     * @return if position has changed
+     */
+    public boolean scrollTo(int x, int y) {
+        final long value = pack(x, y);
+        return mScroll.getAndSet(value) != value;
+    }
+
+    /**
+     * Adds to the current position, overflow wraps around (as int scroll values do)
+     * @return if position has changed
+     */
+    public boolean scrollBy(int x, int y) {
+
+        if (x == 0 && y == 0) {
+            return false;
+        }
+
+        long current;
+        do {
+            current = mScroll.get();
+        } while (!mScroll.compareAndSet(current, pack(scrollX(current) + x, scrollY(current) + y)));
+
+        return true;
+    }
+
+    /**
+     * @return packed position, use {@link #scrollX(long)} and {@link #scrollY(long)} to unpack
+     */
+    public long scroll() {
+        return mScroll.get();
+    }
+
+    public void setVelocity(float velocityX, float velocityY) {
+        mVelocity.set(pack(Float.floatToIntBits(velocityX), Float.floatToIntBits(velocityY)));
+    }
+
+    /**
+     * @return packed velocity, use {@link #velocityX(long)} and {@link #velocityY(long)} to unpack
+     */
+    public long velocity() {
+        return mVelocity.get();
+    }
+
+    public static int scrollX(long scroll) {
+        return (int) (scroll >> 32);
+    }
+
+    public static int scrollY(long scroll) {
+        return (int) scroll;
+    }
+
+    public static float velocityX(long velocity) {
+        return Float.intBitsToFloat((int) (velocity >> 32));
+    }
+
+    public static float velocityY(long velocity) {
+        return Float.intBitsToFloat((int) velocity);
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
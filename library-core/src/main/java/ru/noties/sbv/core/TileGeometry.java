@@ -0,0 +1,186 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.core;
+
+/**
+ * Tiling math shared by all renderers. Tiles are laid out on a grid anchored at 0,
+ * shifted by the scroll value. All methods work on one axis, so they are
+ * called separately for horizontal and vertical axis
+ */
+public final class TileGeometry {
+
+    private TileGeometry() {}
+
+    /**
+     * Tile phase: position of the first (partially) visible tile for supplied scroll value.
+     * Scroll values that are equal modulo `side` produce the same start. Tile side can be fractional
+     * (scaled tile), scroll is reduced in double precision to stay exact for any scroll value
+     * @param scroll current scroll value, any int value (including negative) is OK
+     * @param side of a tile, must be positive
+     * @return start in range (-side, 0]
+     */
+    public static float start(int scroll, float side) {
+        return start((double) scroll, side);
+    }
+
+    /**
+     * Tile phase for a fractional scroll value, for example scroll that was mapped into
+     * a transformed pattern space
+     * @param scroll current scroll value
+     * @param side of a tile, must be positive
+     * @return start in range (-side, 0]
+     * @see #start(int, float)
+     */
+    public static float start(double scroll, float side) {
+
+        final double modulo = scroll % side;
+
+        final double start;
+        if (modulo == 0) {
+            start = 0;
+        } else if (modulo < 0) {
+            start = -(side + modulo);
+        } else {
+            start = -modulo;
+        }
+
+        // rounding can produce exactly -side
+        final float out = (float) start;
+        return out <= -side ? 0.F : out;
+    }
+
+    /**
+     * @param total length to be covered with tiles (starting at 0)
+     * @param start value obtained via {@link #start(int, float)}
+     * @param side of a tile, must be positive
+     * @return number of tiles that are needed to cover [start, total)
+     */
+    public static int iterations(float total, float start, float side) {
+        return (int) Math.ceil((total - start) / side);
+    }
+
+    /**
+     * @param from beginning of visible area (must be non-negative)
+     * @param start value obtained via {@link #start(int, float)}
+     * @param side of a tile, must be positive
+     * @return number of whole tiles before `from` that can be skipped
+     */
+    public static int skip(float from, float start, float side) {
+        return (int) ((from - start) / side);
+    }
+
+    /**
+     * Number of rows (or columns) after which an offset tile layout repeats itself: each row is shifted
+     * by `offset` of a tile relative to the previous one, so the layout repeats after `n` rows when
+     * `offset * n` is a whole number. If there is no such `n` up to `maxPeriod`, the one that
+     * approximates offset best is returned
+     * @param offset fraction of a tile side in range [0, 1)
+     * @param maxPeriod the maximum number of rows, must be positive
+     * @return period in range [1, maxPeriod], offset of a row is then `round(offset * period) / period`
+     */
+    public static int offsetPeriod(float offset, int maxPeriod) {
+
+        int best = 1;
+        double bestError = Double.MAX_VALUE;
+
+        double error;
+
+        for (int period = 1; period <= maxPeriod; period++) {
+            error = Math.abs(offset - Math.round(offset * period) / (double) period);
+            // exact (or float-exact) fraction with the smallest denominator wins
+            if (error < 1E-4) {
+                return period;
+            }
+            if (error < bestError) {
+                bestError = error;
+                best = period;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param index of a row (or column) inside a period of an offset tile layout
+     * @param steps number of `side / period` steps each row is shifted by
+     * @param period obtained via {@link #offsetPeriod(float, int)}
+     * @param side of a tile, must be positive
+     * @return shift of the row in whole pixels, in range [0, side)
+     */
+    public static int offsetShift(int index, int steps, int period, int side) {
+        final long shift = Math.round((double) index * steps * side / period);
+        return (int) (shift % side);
+    }
+
+    /**
+     * Vertical extent of a convex quadrilateral inside a vertical strip [left, right], used to find
+     * tiles that cover a transformed (rotated, skewed) area column by column
+     * @param quad 4 points in order: x0, y0, x1, y1, x2, y2, x3, y3
+     * @param left of the strip
+     * @param right of the strip
+     * @param out array of 2 to hold min &amp; max y
+     * @return if quad intersects the strip (otherwise `out` is not modified)
+     */
+    public static boolean spanY(float[] quad, float left, float right, float[] out) {
+
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+
+        float x0, y0, x1, y1;
+        float t0, t1, from, to, y;
+
+        for (int i = 0; i < 4; i++) {
+
+            x0 = quad[i * 2];
+            y0 = quad[i * 2 + 1];
+            x1 = quad[((i + 1) % 4) * 2];
+            y1 = quad[((i + 1) % 4) * 2 + 1];
+
+            if (Float.compare(x0, x1) == 0) {
+                // vertical edge
+                if (x0 >= left && x0 <= right) {
+                    min = Math.min(min, Math.min(y0, y1));
+                    max = Math.max(max, Math.max(y0, y1));
+                }
+                continue;
+            }
+
+            // part of the edge inside the strip: [from, to] in edge parameter space
+            t0 = (left - x0) / (x1 - x0);
+            t1 = (right - x0) / (x1 - x0);
+            from = Math.max(.0F, Math.min(t0, t1));
+            to = Math.min(1.F, Math.max(t0, t1));
+
+            if (from <= to) {
+                y = y0 + (y1 - y0) * from;
+                min = Math.min(min, y);
+                max = Math.max(max, y);
+                y = y0 + (y1 - y0) * to;
+                min = Math.min(min, y);
+                max = Math.max(max, y);
+            }
+        }
+
+        if (min > max) {
+            return false;
+        }
+
+        out[0] = min;
+        out[1] = max;
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.core;
+
+/**
+ * Turns constant velocity (pixels per second) into whole pixel deltas for each frame.
+ * Deltas are calculated from frame time, so speed does not depend on how many frames are
+ * delivered. Fractional pixels are carried over to the next frame. Does not allocate
+ */
+public class VelocityIntegrator {
+
+    private static final float NANOS_IN_SECOND = 1000000000.F;
+
+    private float mVelocityX;
+    private float mVelocityY;
+
+    private float mRemainderX;
+    private float mRemainderY;
+
+    private long mLastFrameTimeNanos;
+
+    private int mDx;
+    private int mDy;
+
+    public void setVelocity(float velocityX, float velocityY) {
+        mVelocityX = velocityX;
+        mVelocityY = velocityY;
+        if (!hasVelocity()) {
+            mRemainderX = mRemainderY = .0F;
+        }
+    }
+
+    public float velocityX() {
+        return mVelocityX;
+    }
+
+    public float velocityY() {
+        return mVelocityY;
+    }
+
+    public boolean hasVelocity() {
+        return Float.compare(mVelocityX, .0F) != 0
+                || Float.compare(mVelocityY, .0F) != 0;
+    }
+
+    /**
+     * Forgets last frame time, so the next call to {@link #integrate(long)} only marks the time
+     */
+    public void reset() {
+        mLastFrameTimeNanos = 0L;
+    }
+
+    /**
+     * @param frameTimeNanos time of the current frame
+     * @return if there is a non-zero delta to be applied ({@link #dx()} and {@link #dy()})
+     */
+    public boolean integrate(long frameTimeNanos) {
+
+        mDx = mDy = 0;
+
+        // first frame only marks the time
+        if (mLastFrameTimeNanos != 0L) {
+
+            final float seconds = (frameTimeNanos - mLastFrameTimeNanos) / NANOS_IN_SECOND;
+
+            final float x = mVelocityX * seconds + mRemainderX;
+            final float y = mVelocityY * seconds + mRemainderY;
+
+            mDx = (int) x;
+            mDy = (int) y;
+
+            mRemainderX = x - mDx;
+            mRemainderY = y - mDy;
+        }
+
+        mLastFrameTimeNanos = frameTimeNanos;
+
+        return mDx != 0 || mDy != 0;
+    }
+
+    /**
+     * @return horizontal delta of the last {@link #integrate(long)} call
+     */
+    public int dx() {
+        return mDx;
+    }
+
+    /**
+     * @return vertical delta of the last {@link #integrate(long)} call
+     */
+    public int dy() {
+        return mDy;
+    }
+}
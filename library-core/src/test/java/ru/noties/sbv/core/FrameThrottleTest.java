@@ -0,0 +1,180 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameThrottleTest {
+
+    private static final long VSYNC_60 = 16666667L;
+    private static final long VSYNC_120 = 8333333L;
+
+    private static final long MILLI = 1000000L;
+
+    // deterministic vsync jitter in nanos, repeats every 5 frames
+    private static final long[] JITTER = {0L, 900000L, -700000L, 400000L, -950000L};
+
+    private FrameThrottle mThrottle;
+
+    @Before
+    public void before() {
+        mThrottle = new FrameThrottle();
+    }
+
+    @Test
+    public void unlimited_accepts_every_frame() {
+        mThrottle.setFrameRate(FrameThrottle.FRAME_RATE_UNLIMITED);
+        assertFalse(mThrottle.isThrottling());
+        for (int i = 1; i <= 120; i++) {
+            assertTrue(mThrottle.accept(frameTime(i, VSYNC_60, 0L)));
+            assertEquals(0L, mThrottle.delayMillis(frameTime(i, VSYNC_60, 0L)));
+        }
+    }
+
+    @Test
+    public void fps_30_on_60_hz_with_jitter_is_every_other_frame() {
+        mThrottle.setFrameRate(30);
+        for (int i = 1; i <= 600; i++) {
+            final boolean accepted = mThrottle.accept(frameTime(i, VSYNC_60, JITTER[i % JITTER.length]));
+            assertEquals("frame: " + i, (i - 1) % 2 == 0, accepted);
+        }
+    }
+
+    @Test
+    public void fps_15_on_60_hz_with_jitter_is_every_fourth_frame() {
+        mThrottle.setFrameRate(15);
+        int accepted = 0;
+        for (int i = 1; i <= 600; i++) {
+            if (mThrottle.accept(frameTime(i, VSYNC_60, JITTER[i % JITTER.length]))) {
+                assertEquals("frame: " + i, 0, (i - 1) % 4);
+                accepted += 1;
+            }
+        }
+        assertEquals(150, accepted);
+    }
+
+    @Test
+    public void fps_30_on_120_hz_with_jitter_is_every_fourth_frame() {
+        mThrottle.setFrameRate(30);
+        int accepted = 0;
+        for (int i = 1; i <= 1200; i++) {
+            if (mThrottle.accept(frameTime(i, VSYNC_120, JITTER[i % JITTER.length] / 2))) {
+                accepted += 1;
+            }
+        }
+        assertEquals(300, accepted);
+    }
+
+    @Test
+    public void delay_never_misses_next_accepted_frame() {
+
+        mThrottle.setFrameRate(30);
+
+        int accepted = 0;
+        int wakeUps = 0;
+
+        // frame callback runs 1 ms after vsync, next one is requested with the returned delay
+        long wakeUpTime = 0L;
+
+        for (int i = 1; i <= 600; i++) {
+
+            final long frameTime = frameTime(i, VSYNC_60, JITTER[i % JITTER.length]);
+            if (frameTime < wakeUpTime) {
+                continue;
+            }
+
+            wakeUps += 1;
+
+            if (mThrottle.accept(frameTime)) {
+                accepted += 1;
+            }
+
+            final long now = frameTime + MILLI;
+            wakeUpTime = now + mThrottle.delayMillis(now) * MILLI;
+        }
+
+        assertEquals(300, accepted);
+        // sleeping between accepted frames, not woken up on each vsync
+        assertEquals(300, wakeUps);
+    }
+
+    @Test
+    public void long_pause_accepts_next_frame() {
+        mThrottle.setFrameRate(30);
+        assertTrue(mThrottle.accept(VSYNC_60));
+        assertFalse(mThrottle.accept(2 * VSYNC_60));
+        // frames were not requested for a while (view was paused)
+        assertTrue(mThrottle.accept(600 * VSYNC_60));
+        assertEquals(0L, mThrottle.delayMillis(700 * VSYNC_60));
+    }
+
+    @Test
+    public void reset_accepts_next_frame() {
+        mThrottle.setFrameRate(10);
+        assertTrue(mThrottle.accept(VSYNC_60));
+        assertFalse(mThrottle.accept(2 * VSYNC_60));
+        mThrottle.reset();
+        assertTrue(mThrottle.accept(3 * VSYNC_60));
+    }
+
+    @Test
+    public void static_accepts_nothing() {
+        mThrottle.setFrameRate(FrameThrottle.FRAME_RATE_STATIC);
+        assertTrue(mThrottle.isStatic());
+        assertTrue(mThrottle.isThrottling());
+        for (int i = 1; i <= 120; i++) {
+            assertFalse(mThrottle.accept(frameTime(i, VSYNC_60, 0L)));
+        }
+        mThrottle.setFrameRate(FrameThrottle.FRAME_RATE_UNLIMITED);
+        assertFalse(mThrottle.isStatic());
+        assertTrue(mThrottle.accept(121 * VSYNC_60));
+    }
+
+    @Test
+    public void frame_rate_without_power_save_is_max() {
+        assertEquals(30, FrameThrottle.frameRate(30, FrameThrottle.FRAME_RATE_STATIC, false));
+        assertEquals(FrameThrottle.FRAME_RATE_UNLIMITED,
+                FrameThrottle.frameRate(FrameThrottle.FRAME_RATE_UNLIMITED, 15, false));
+    }
+
+    @Test
+    public void frame_rate_with_power_save_is_stricter_one() {
+        assertEquals(15, FrameThrottle.frameRate(30, 15, true));
+        assertEquals(15, FrameThrottle.frameRate(15, 30, true));
+        assertEquals(15, FrameThrottle.frameRate(FrameThrottle.FRAME_RATE_UNLIMITED, 15, true));
+        assertEquals(30, FrameThrottle.frameRate(30, FrameThrottle.FRAME_RATE_UNLIMITED, true));
+        assertEquals(FrameThrottle.FRAME_RATE_UNLIMITED, FrameThrottle.frameRate(
+                FrameThrottle.FRAME_RATE_UNLIMITED, FrameThrottle.FRAME_RATE_UNLIMITED, true));
+    }
+
+    @Test
+    public void frame_rate_with_power_save_static_wins() {
+        assertEquals(FrameThrottle.FRAME_RATE_STATIC,
+                FrameThrottle.frameRate(30, FrameThrottle.FRAME_RATE_STATIC, true));
+        assertEquals(FrameThrottle.FRAME_RATE_STATIC,
+                FrameThrottle.frameRate(FrameThrottle.FRAME_RATE_STATIC, FrameThrottle.FRAME_RATE_UNLIMITED, true));
+    }
+
+    private static long frameTime(int frame, long vsync, long jitter) {
+        return frame * vsync + jitter;
+    }
+}
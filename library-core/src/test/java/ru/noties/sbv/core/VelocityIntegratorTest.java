@@ -0,0 +1,137 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VelocityIntegratorTest {
+
+    private static final long SECOND = 1000000000L;
+    private static final long VSYNC_60 = 16666667L;
+
+    private VelocityIntegrator mIntegrator;
+
+    @Before
+    public void before() {
+        mIntegrator = new VelocityIntegrator();
+    }
+
+    @Test
+    public void no_velocity() {
+        assertFalse(mIntegrator.hasVelocity());
+        assertFalse(mIntegrator.integrate(VSYNC_60));
+        assertFalse(mIntegrator.integrate(2 * VSYNC_60));
+    }
+
+    @Test
+    public void first_frame_only_marks_time() {
+        mIntegrator.setVelocity(600.F, -600.F);
+        assertFalse(mIntegrator.integrate(SECOND));
+        assertEquals(0, mIntegrator.dx());
+        assertEquals(0, mIntegrator.dy());
+    }
+
+    @Test
+    public void distance_does_not_depend_on_frame_count() {
+
+        mIntegrator.setVelocity(100.F, -45.F);
+
+        // every frame at 60 Hz
+        final int[] everyFrame = integrate(mIntegrator, SECOND, VSYNC_60, 60);
+
+        final VelocityIntegrator integrator = new VelocityIntegrator();
+        integrator.setVelocity(100.F, -45.F);
+
+        // every fourth frame (15 fps throttle)
+        final int[] throttled = integrate(integrator, SECOND, 4 * VSYNC_60, 15);
+
+        assertEquals(100, everyFrame[0], 1);
+        assertEquals(-45, everyFrame[1], 1);
+        assertEquals(everyFrame[0], throttled[0], 1);
+        assertEquals(everyFrame[1], throttled[1], 1);
+    }
+
+    @Test
+    public void fractional_pixels_are_carried_over() {
+
+        // less than a pixel per frame
+        mIntegrator.setVelocity(30.F, .0F);
+
+        final int[] out = integrate(mIntegrator, SECOND, VSYNC_60, 120);
+
+        assertEquals(60, out[0], 1);
+    }
+
+    @Test
+    public void catches_up_after_pause() {
+
+        mIntegrator.setVelocity(200.F, 50.F);
+
+        integrate(mIntegrator, SECOND, VSYNC_60, 60);
+
+        // frames were not requested for 3 seconds (view was paused), last frame time is kept
+        final long resumed = SECOND + 60 * VSYNC_60 + 3 * SECOND;
+        assertTrue(mIntegrator.integrate(resumed));
+        assertEquals(600, mIntegrator.dx(), 1);
+        assertEquals(150, mIntegrator.dy(), 1);
+    }
+
+    @Test
+    public void reset_forgets_time() {
+
+        mIntegrator.setVelocity(200.F, .0F);
+
+        integrate(mIntegrator, SECOND, VSYNC_60, 10);
+
+        mIntegrator.reset();
+        assertFalse(mIntegrator.integrate(100 * SECOND));
+        assertTrue(mIntegrator.integrate(100 * SECOND + SECOND));
+        assertEquals(200, mIntegrator.dx());
+    }
+
+    @Test
+    public void zero_velocity_drops_remainder() {
+        mIntegrator.setVelocity(30.F, .0F);
+        mIntegrator.integrate(VSYNC_60);
+        // half a pixel
+        mIntegrator.integrate(2 * VSYNC_60);
+        mIntegrator.setVelocity(.0F, .0F);
+        assertFalse(mIntegrator.hasVelocity());
+        mIntegrator.setVelocity(30.F, .0F);
+        // remainder is not carried over to a new velocity
+        assertFalse(mIntegrator.integrate(3 * VSYNC_60));
+    }
+
+    // integrates `frames` frames that follow a frame at `start` (0 is reserved for no frame), returns summed deltas
+    private static int[] integrate(VelocityIntegrator integrator, long start, long interval, int frames) {
+        int x = 0;
+        int y = 0;
+        integrator.integrate(start);
+        for (int i = 1; i <= frames; i++) {
+            if (integrator.integrate(start + i * interval)) {
+                x += integrator.dx();
+                y += integrator.dy();
+            }
+        }
+        return new int[]{x, y};
+    }
+}
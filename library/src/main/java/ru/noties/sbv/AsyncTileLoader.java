@@ -0,0 +1,171 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads tiles on a background executor shared by all views. Executor has a thread per core
+ * (minus one for the main thread, at most 4), so tiles of multiple views are decoded in parallel.
+ * Each request has a generation: a result is delivered on the main thread only if no other
+ * request was made (and loading was not cancelled) meanwhile, stale results are released.
+ * Must be used from the main thread
+ */
+class AsyncTileLoader {
+
+    private static final int THREADS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+
+    private static final ThreadPoolExecutor EXECUTOR;
+    static {
+        EXECUTOR = new ThreadPoolExecutor(
+                THREADS,
+                THREADS,
+                1L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new BackgroundThreadFactory()
+        );
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    interface Task {
+        /**
+         * Is called on a background thread
+         * @return loaded tile or NULL
+         */
+        Result load();
+    }
+
+    interface Callback {
+        /**
+         * Is called on the main thread with the result of the latest request
+         * @param result loaded tile or NULL
+         */
+        void onLoaded(Result result);
+    }
+
+    static class Result {
+
+        final SharedTileCache.Tile tile;
+
+        // NULL if tile is not taken from shared cache
+        final SharedTileCache.Handle handle;
+
+        Result(SharedTileCache.Tile tile, SharedTileCache.Handle handle) {
+            this.tile = tile;
+            this.handle = handle;
+        }
+
+        void release() {
+            if (handle != null) {
+                handle.release();
+            }
+        }
+    }
+
+    private final Callback mCallback;
+
+    private int mGeneration;
+    private Future<?> mFuture;
+
+    AsyncTileLoader(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * Cancels previous request (if any) and starts a new one
+     */
+    void load(final Task task) {
+
+        cancel();
+
+        final int generation = mGeneration;
+
+        mFuture = EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                Result result;
+                try {
+                    result = task.load();
+                } catch (RuntimeException e) {
+                    // will be loaded again on the main thread, so error is reported there
+                    result = null;
+                }
+                final Result loaded = result;
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(generation, loaded);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancels current request, if it is already running its result will be released
+     */
+    void cancel() {
+        mGeneration += 1;
+        if (mFuture != null) {
+            mFuture.cancel(false);
+            mFuture = null;
+        }
+    }
+
+    boolean isLoading() {
+        return mFuture != null;
+    }
+
+    private void deliver(int generation, Result result) {
+        if (generation == mGeneration) {
+            mFuture = null;
+            mCallback.onLoaded(result);
+        } else if (result != null) {
+            result.release();
+        }
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "sbv-tile-loader-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.view.Choreographer;
+
+import ru.noties.sbv.core.FrameThrottle;
+import ru.noties.sbv.core.VelocityIntegrator;
+
+/**
+ * Scrolls {@link ScrollingBackgroundView} with a constant velocity. Position is integrated
+ * from frame time, so speed does not depend on how many frames are actually drawn (or dropped).
+ * Fractional pixels are carried over to the next frame. Does not allocate per frame.
+ * While inactive (view cannot be seen) no frame callbacks are posted. Last frame time is kept,
+ * so the first frame after activation catches up to the position scroll would have reached.
+ * Frame rate can be capped, skipped frames are not requested at all when possible
+ */
+class AutoScroller implements Choreographer.FrameCallback {
+
+    private final ScrollingBackgroundView mView;
+    private final VelocityIntegrator mIntegrator;
+    private final FrameThrottle mThrottle;
+
+    private int mFrameRate;
+    private boolean mActive;
+    private boolean mScheduled;
+
+    AutoScroller(ScrollingBackgroundView view) {
+        mView = view;
+        mIntegrator = new VelocityIntegrator();
+        mThrottle = new FrameThrottle();
+    }
+
+    void setVelocity(float velocityX, float velocityY) {
+        final boolean hadVelocity = hasVelocity();
+        mIntegrator.setVelocity(velocityX, velocityY);
+        if (!hadVelocity) {
+            // time is counted from the first frame after velocity is set
+            mIntegrator.reset();
+        }
+        update();
+    }
+
+    /**
+     * @param active if view can be seen. When inactive scrolling is paused, but time keeps counting
+     */
+    void setActive(boolean active) {
+        if (mActive != active) {
+            mActive = active;
+            update();
+        }
+    }
+
+    /**
+     * @param framesPerSecond maximum number of scroll steps per second, 0 for every frame, negative to stop scrolling
+     */
+    void setFrameRate(int framesPerSecond) {
+        if (mFrameRate == framesPerSecond) {
+            return;
+        }
+        mFrameRate = framesPerSecond;
+        mThrottle.setFrameRate(framesPerSecond);
+        mThrottle.reset();
+        if (mScheduled) {
+            // pending callback could have been delayed for the previous frame rate
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        update();
+    }
+
+    float velocityX() {
+        return mIntegrator.velocityX();
+    }
+
+    float velocityY() {
+        return mIntegrator.velocityY();
+    }
+
+    boolean hasVelocity() {
+        return mIntegrator.hasVelocity();
+    }
+
+    private void update() {
+        if (mActive
+                && hasVelocity()
+                && !mThrottle.isStatic()) {
+            if (!mScheduled) {
+                mScheduled = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        } else if (mScheduled) {
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+
+        if (!mScheduled) {
+            return;
+        }
+
+        // skipped frames are integrated by the next accepted one
+        if (mThrottle.accept(frameTimeNanos)
+                && mIntegrator.integrate(frameTimeNanos)) {
+            mView.scrollBy(mIntegrator.dx(), mIntegrator.dy());
+        }
+
+        // scrolling could have been stopped by a scroll listener
+        if (!mScheduled) {
+            return;
+        }
+
+        final long delay = mThrottle.delayMillis(System.nanoTime());
+        if (delay > 0L) {
+            Choreographer.getInstance().postFrameCallbackDelayed(this, delay);
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Remembers drawable bounds, state & level, so cached drawable content can
+ * detect if it must be re-rendered
+ */
+class DrawableSnapshot {
+
+    private final Rect mBounds;
+
+    private int[] mState;
+    private int mLevel;
+
+    private boolean mValid;
+
+    DrawableSnapshot() {
+        mBounds = new Rect();
+    }
+
+    boolean matches(Drawable drawable) {
+        return mValid
+                && mBounds.equals(drawable.getBounds())
+                // drawable replaces its state array when state changes
+                && mState == drawable.getState()
+                && mLevel == drawable.getLevel();
+    }
+
+    void update(Drawable drawable) {
+        mBounds.set(drawable.getBounds());
+        mState = drawable.getState();
+        mLevel = drawable.getLevel();
+        mValid = true;
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+}
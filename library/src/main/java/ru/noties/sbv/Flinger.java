@@ -0,0 +1,129 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.widget.OverScroller;
+
+/**
+ * Moves {@link ScrollingBackgroundView} with a decaying velocity (the same physics as a fling
+ * of a scrolling container). Scroller runs on an unbounded range and only deltas are applied,
+ * so it works for any scroll value. Position is calculated from frame time, so when frames are not
+ * requested (view is inactive) the next frame catches up. Does not allocate per frame
+ */
+class Flinger implements Choreographer.FrameCallback {
+
+    private final ScrollingBackgroundView mView;
+    private final OverScroller mScroller;
+
+    private int mLastX;
+    private int mLastY;
+
+    private boolean mActive;
+    private boolean mScheduled;
+
+    Flinger(Context context, ScrollingBackgroundView view) {
+        mView = view;
+        mScroller = new OverScroller(context);
+    }
+
+    /**
+     * Starts a fling, velocity of a fling that is still running in the same direction is added
+     */
+    void fling(int velocityX, int velocityY) {
+        // scroller starts at 0, as only deltas are used
+        mLastX = mLastY = 0;
+        mScroller.fling(
+                0, 0,
+                velocityX, velocityY,
+                Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, Integer.MAX_VALUE
+        );
+        update();
+    }
+
+    /**
+     * Stops at current position
+     */
+    void stop() {
+        if (!mScroller.isFinished()) {
+            mScroller.forceFinished(true);
+        }
+        update();
+    }
+
+    boolean isFlinging() {
+        return !mScroller.isFinished();
+    }
+
+    void setFriction(float friction) {
+        mScroller.setFriction(friction);
+    }
+
+    /**
+     * @param active if view can be seen. When inactive no frames are requested, but fling keeps going
+     */
+    void setActive(boolean active) {
+        if (mActive != active) {
+            mActive = active;
+            update();
+        }
+    }
+
+    private void update() {
+        if (mActive
+                && isFlinging()) {
+            if (!mScheduled) {
+                mScheduled = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        } else if (mScheduled) {
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+
+        if (!mScheduled) {
+            return;
+        }
+
+        mScheduled = false;
+
+        if (mScroller.computeScrollOffset()) {
+
+            final int x = mScroller.getCurrX();
+            final int y = mScroller.getCurrY();
+
+            final int dx = x - mLastX;
+            final int dy = y - mLastY;
+
+            mLastX = x;
+            mLastY = y;
+
+            if (dx != 0 || dy != 0) {
+                mView.scrollBy(dx, dy);
+            }
+        }
+
+        // could have been stopped by a scroll listener
+        update();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import ru.noties.sbv.core.TileGeometry;
+
+/**
+ * Offscreen bitmap that holds one period of an offset tile layout: each row (brick) or column (half-drop)
+ * of tiles is shifted relative to the previous one. This period is then repeated as a plain grid,
+ * so drawing an offset layout costs the same as a plain one.
+ * Is re-rendered only when drawable bounds, state or level, or layout change
+ */
+class OffsetTile {
+
+    // the maximum number of rows (or columns) in a period
+    static final int MAX_PERIOD = 12;
+
+    private final DrawableSnapshot mSnapshot;
+
+    // rows are shifted horizontally if false, columns vertically if true
+    private boolean mVertical;
+    private int mPeriod = 1;
+    private int mSteps;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    // incremented each time bitmap is (re-)rendered
+    private int mRenders;
+
+    OffsetTile() {
+        mSnapshot = new DrawableSnapshot();
+    }
+
+    /**
+     * @param vertical to shift columns of tiles vertically, otherwise rows are shifted horizontally
+     * @param offset fraction of a tile side in range [0, 1), is approximated with a fraction
+     *               that has denominator up to {@link #MAX_PERIOD}
+     */
+    void setLayout(boolean vertical, float offset) {
+
+        final int period = TileGeometry.offsetPeriod(offset, MAX_PERIOD);
+        final int steps = Math.round(offset * period);
+
+        if (mVertical != vertical
+                || mPeriod != period
+                || mSteps != steps) {
+            mVertical = vertical;
+            mPeriod = period;
+            mSteps = steps;
+            mSnapshot.invalidate();
+        }
+    }
+
+    /**
+     * @return number of tile columns in one period
+     */
+    int columns() {
+        return mVertical ? mPeriod : 1;
+    }
+
+    /**
+     * @return number of tile rows in one period
+     */
+    int rows() {
+        return mVertical ? 1 : mPeriod;
+    }
+
+    /**
+     * @return up to date bitmap with one period of the layout or NULL if there is nothing to render
+     */
+    Bitmap obtain(Drawable drawable) {
+
+        final Rect rect = drawable.getBounds();
+
+        if (rect.width() <= 0
+                || rect.height() <= 0) {
+            return null;
+        }
+
+        if (mBitmap == null
+                || !mSnapshot.matches(drawable)) {
+            render(drawable);
+        }
+
+        return mBitmap;
+    }
+
+    void invalidate() {
+        mSnapshot.invalidate();
+    }
+
+    /**
+     * @return number of times this tile has been rendered, lets callers tell
+     * if {@link #obtain(Drawable)} used cached bitmap
+     */
+    int renders() {
+        return mRenders;
+    }
+
+    /**
+     * @return bytes held by the bitmap (0 if there is none)
+     */
+    int byteCount() {
+        return mBitmap != null ? mBitmap.getByteCount() : 0;
+    }
+
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mCanvas = null;
+        }
+        mSnapshot.invalidate();
+    }
+
+    private void render(Drawable drawable) {
+
+        final Rect rect = drawable.getBounds();
+
+        final int tileWidth = rect.width();
+        final int tileHeight = rect.height();
+
+        final int width = tileWidth * columns();
+        final int height = tileHeight * rows();
+
+        if (mBitmap == null
+                || mBitmap.getWidth() != width
+                || mBitmap.getHeight() != height) {
+            if (mBitmap != null) {
+                mBitmap.recycle();
+            }
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        final Canvas canvas = mCanvas;
+
+        int shift;
+
+        for (int i = 0; i < mPeriod; i++) {
+
+            shift = TileGeometry.offsetShift(i, mSteps, mPeriod, mVertical ? tileHeight : tileWidth);
+
+            // shifted tile and the part of the previous one that wraps around
+            if (mVertical) {
+                draw(canvas, drawable, i * tileWidth, shift);
+                if (shift > 0) {
+                    draw(canvas, drawable, i * tileWidth, shift - tileHeight);
+                }
+            } else {
+                draw(canvas, drawable, shift, i * tileHeight);
+                if (shift > 0) {
+                    draw(canvas, drawable, shift - tileWidth, i * tileHeight);
+                }
+            }
+        }
+
+        mSnapshot.update(drawable);
+        mRenders += 1;
+    }
+
+    private static void draw(Canvas canvas, Drawable drawable, int x, int y) {
+        final Rect rect = drawable.getBounds();
+        final int save = canvas.save();
+        try {
+            // tile content starts at drawable bounds' left & top
+            canvas.translate(x - rect.left, y - rect.top);
+            drawable.draw(canvas);
+        } finally {
+            canvas.restoreToCount(save);
+        }
+    }
+}
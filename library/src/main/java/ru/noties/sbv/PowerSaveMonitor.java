@@ -0,0 +1,126 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide tracker of battery saver mode ({@link PowerManager#isPowerSaveMode()}, API 21+).
+ * A broadcast receiver is registered only while there are listeners. Below API 21 power save
+ * mode is always reported as disabled. Must be used from the main thread
+ */
+class PowerSaveMonitor {
+
+    interface Listener {
+        void onPowerSaveModeChanged(boolean powerSaveMode);
+    }
+
+    private static PowerSaveMonitor sInstance;
+
+    static PowerSaveMonitor getInstance() {
+        if (sInstance == null) {
+            sInstance = new PowerSaveMonitor();
+        }
+        return sInstance;
+    }
+
+    private final List<Listener> mListeners = new ArrayList<>(3);
+
+    // application context, NULL when receiver is not registered
+    private Context mContext;
+    private BroadcastReceiver mReceiver;
+
+    private boolean mPowerSaveMode;
+
+    private PowerSaveMonitor() {
+    }
+
+    /**
+     * @return current power save mode, value is tracked only while there are listeners
+     */
+    boolean isPowerSaveMode() {
+        return mPowerSaveMode;
+    }
+
+    void register(Context context, Listener listener) {
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP
+                || mListeners.contains(listener)) {
+            return;
+        }
+
+        mListeners.add(listener);
+
+        if (mContext == null) {
+            mContext = context.getApplicationContext();
+            if (mReceiver == null) {
+                mReceiver = new BroadcastReceiver() {
+                    @Override
+                    public void onReceive(Context context, Intent intent) {
+                        update();
+                    }
+                };
+            }
+            mContext.registerReceiver(mReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+            mPowerSaveMode = queryPowerSaveMode(mContext);
+        }
+    }
+
+    void unregister(Listener listener) {
+        if (mListeners.remove(listener)
+                && mListeners.size() == 0
+                && mContext != null) {
+            mContext.unregisterReceiver(mReceiver);
+            mContext = null;
+            mPowerSaveMode = false;
+        }
+    }
+
+    private void update() {
+
+        if (mContext == null) {
+            return;
+        }
+
+        final boolean powerSaveMode = queryPowerSaveMode(mContext);
+        if (mPowerSaveMode != powerSaveMode) {
+            mPowerSaveMode = powerSaveMode;
+            // a listener can unregister itself
+            for (int i = mListeners.size() - 1; i >= 0; i--) {
+                if (i < mListeners.size()) {
+                    mListeners.get(i).onPowerSaveModeChanged(powerSaveMode);
+                }
+            }
+        }
+    }
+
+    private static boolean queryPowerSaveMode(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        final PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+}
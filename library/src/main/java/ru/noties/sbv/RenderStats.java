@@ -0,0 +1,210 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+/**
+ * Rendering counters of a {@link ScrollingBackgroundView}. Counters are accumulated
+ * since stats were enabled (or last reset), values with `lastFrame` prefix describe the last draw call only.
+ * All values are primitive fields that are updated in place, so collecting stats allocates nothing
+ * and can be left enabled in release builds
+ *
+ * @see ScrollingBackgroundView#setRenderStatsEnabled(boolean)
+ * @see ScrollingBackgroundView#renderStats(RenderStats)
+ * @see ScrollingBackgroundView#setOnRenderStatsListener(ScrollingBackgroundView.OnRenderStatsListener)
+ */
+public class RenderStats {
+
+    private long mFrames;
+    private long mTilesDrawn;
+    private long mDrawOps;
+    private long mDrawNanos;
+
+    private int mLastFrameTilesDrawn;
+    private int mLastFrameDrawOps;
+    private long mLastFrameDrawNanos;
+
+    private long mInvalidationsRequested;
+    private long mInvalidationsPerformed;
+
+    private long mCacheHits;
+    private long mCacheMisses;
+    private long mCacheBytes;
+
+    /**
+     * @return number of draw calls
+     */
+    public long frames() {
+        return mFrames;
+    }
+
+    /**
+     * @return total number of tiles drawn (including partially visible ones)
+     */
+    public long tilesDrawn() {
+        return mTilesDrawn;
+    }
+
+    /**
+     * A shader fills the whole area with one operation, otherwise each tile is a separate operation
+     * @return total number of draw operations issued to a canvas
+     */
+    public long drawOps() {
+        return mDrawOps;
+    }
+
+    /**
+     * @return total wall time spent in `onDraw` in nanoseconds
+     */
+    public long drawNanos() {
+        return mDrawNanos;
+    }
+
+    /**
+     * @return number of tiles drawn by the last draw call
+     */
+    public int lastFrameTilesDrawn() {
+        return mLastFrameTilesDrawn;
+    }
+
+    /**
+     * @return number of draw operations issued by the last draw call
+     */
+    public int lastFrameDrawOps() {
+        return mLastFrameDrawOps;
+    }
+
+    /**
+     * @return wall time of the last `onDraw` call in nanoseconds
+     */
+    public long lastFrameDrawNanos() {
+        return mLastFrameDrawNanos;
+    }
+
+    /**
+     * @return number of redraws requested (scroll changes, drawable changes, etc)
+     */
+    public long invalidationsRequested() {
+        return mInvalidationsRequested;
+    }
+
+    /**
+     * @return number of redraws actually scheduled
+     */
+    public long invalidationsPerformed() {
+        return mInvalidationsPerformed;
+    }
+
+    /**
+     * @return number of draws that used an up to date offscreen cache
+     */
+    public long cacheHits() {
+        return mCacheHits;
+    }
+
+    /**
+     * @return number of draws that had to (re-)render an offscreen cache
+     */
+    public long cacheMisses() {
+        return mCacheMisses;
+    }
+
+    /**
+     * @return bytes currently held by offscreen tile bitmaps (as of the last draw call)
+     */
+    public long cacheBytes() {
+        return mCacheBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderStats{" +
+                "frames=" + mFrames +
+                ", tilesDrawn=" + mTilesDrawn +
+                ", drawOps=" + mDrawOps +
+                ", drawNanos=" + mDrawNanos +
+                ", lastFrameTilesDrawn=" + mLastFrameTilesDrawn +
+                ", lastFrameDrawOps=" + mLastFrameDrawOps +
+                ", lastFrameDrawNanos=" + mLastFrameDrawNanos +
+                ", invalidationsRequested=" + mInvalidationsRequested +
+                ", invalidationsPerformed=" + mInvalidationsPerformed +
+                ", cacheHits=" + mCacheHits +
+                ", cacheMisses=" + mCacheMisses +
+                ", cacheBytes=" + mCacheBytes +
+                '}';
+    }
+
+    void set(RenderStats other) {
+        mFrames = other.mFrames;
+        mTilesDrawn = other.mTilesDrawn;
+        mDrawOps = other.mDrawOps;
+        mDrawNanos = other.mDrawNanos;
+        mLastFrameTilesDrawn = other.mLastFrameTilesDrawn;
+        mLastFrameDrawOps = other.mLastFrameDrawOps;
+        mLastFrameDrawNanos = other.mLastFrameDrawNanos;
+        mInvalidationsRequested = other.mInvalidationsRequested;
+        mInvalidationsPerformed = other.mInvalidationsPerformed;
+        mCacheHits = other.mCacheHits;
+        mCacheMisses = other.mCacheMisses;
+        mCacheBytes = other.mCacheBytes;
+    }
+
+    void reset() {
+        mFrames = mTilesDrawn = mDrawOps = mDrawNanos = 0L;
+        mLastFrameTilesDrawn = mLastFrameDrawOps = 0;
+        mLastFrameDrawNanos = 0L;
+        mInvalidationsRequested = mInvalidationsPerformed = 0L;
+        mCacheHits = mCacheMisses = mCacheBytes = 0L;
+    }
+
+    void onInvalidationRequested(boolean performed) {
+        mInvalidationsRequested += 1;
+        if (performed) {
+            mInvalidationsPerformed += 1;
+        }
+    }
+
+    void onFrameStarted() {
+        mLastFrameTilesDrawn = 0;
+        mLastFrameDrawOps = 0;
+        mCacheBytes = 0L;
+    }
+
+    void onTilesDrawn(int tiles, int ops) {
+        mLastFrameTilesDrawn += tiles;
+        mLastFrameDrawOps += ops;
+    }
+
+    void onCacheLookup(boolean hit) {
+        if (hit) {
+            mCacheHits += 1;
+        } else {
+            mCacheMisses += 1;
+        }
+    }
+
+    void onCacheBytes(long bytes) {
+        mCacheBytes += bytes;
+    }
+
+    void onFrameFinished(long nanos) {
+        mFrames += 1;
+        mTilesDrawn += mLastFrameTilesDrawn;
+        mDrawOps += mLastFrameDrawOps;
+        mDrawNanos += nanos;
+        mLastFrameDrawNanos = nanos;
+    }
+}
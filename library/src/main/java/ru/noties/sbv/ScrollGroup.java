@@ -0,0 +1,285 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.noties.sbv.core.VelocityIntegrator;
+
+/**
+ * Keeps multiple {@link ScrollingBackgroundView}s in sync. Group owns one master scroll position,
+ * each member view is scrolled to this position multiplied by its own ratios. All changes
+ * that happen during a frame ({@link #scrollBy(int, int)}, {@link #scrollTo(int, int)}, velocity)
+ * are applied to all members in one pass on the next vsync.
+ * A member is removed from the group automatically when it is detached from window.
+ * A view can be a member of one group at a time.
+ * Velocity scrolling is paused while no member is active ({@link ScrollingBackgroundView#isActive()})
+ * and catches up to the time-correct position when one becomes active again.
+ * Must be used from the main thread
+ */
+public class ScrollGroup {
+
+    private final List<Member> mMembers;
+    private final Ticker mTicker;
+    private final VelocityIntegrator mIntegrator;
+
+    private int mScrollX;
+    private int mScrollY;
+
+    private boolean mScheduled;
+    private boolean mDirty;
+
+    public ScrollGroup() {
+        mMembers = new ArrayList<>(3);
+        mTicker = new Ticker();
+        mIntegrator = new VelocityIntegrator();
+    }
+
+    /**
+     * Adds a view to this group. If view is already a member its ratios are updated.
+     * View will be scrolled to the current group position on the next frame
+     * @param view to be added
+     * @param ratioX horizontal multiplier for the master scroll position
+     * @param ratioY vertical multiplier for the master scroll position
+     * @throws IllegalStateException if view is a member of another group, remove it from that group first
+     */
+    public void add(ScrollingBackgroundView view, float ratioX, float ratioY) {
+
+        final int index = indexOf(view);
+        if (index >= 0) {
+            mMembers.set(index, new Member(view, ratioX, ratioY));
+        } else {
+            // view has a single observer slot, the other group would silently stop tracking its active state
+            if (view.activeStateObserver() != null) {
+                throw new IllegalStateException("View is already a member of another ScrollGroup: " + view);
+            }
+            mMembers.add(new Member(view, ratioX, ratioY));
+            view.addOnAttachStateChangeListener(mTicker);
+            view.setActiveStateObserver(mTicker);
+        }
+
+        mDirty = true;
+        schedule();
+    }
+
+    /**
+     * @param view to be removed from this group
+     * @return if view was a member of this group
+     */
+    public boolean remove(ScrollingBackgroundView view) {
+
+        final int index = indexOf(view);
+        if (index < 0) {
+            return false;
+        }
+
+        mMembers.remove(index);
+        view.removeOnAttachStateChangeListener(mTicker);
+        if (view.activeStateObserver() == mTicker) {
+            view.setActiveStateObserver(null);
+        }
+
+        if (mMembers.size() == 0) {
+            unschedule();
+            // nothing to catch up with when a new member is added
+            mIntegrator.reset();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return number of views in this group
+     */
+    public int size() {
+        return mMembers.size();
+    }
+
+    /**
+     * Changes master scroll position, all members will be updated on the next frame
+     * @see ScrollingBackgroundView#scrollBy(int, int)
+     */
+    public void scrollBy(int x, int y) {
+        if (x != 0 || y != 0) {
+            mScrollX += x;
+            mScrollY += y;
+            mDirty = true;
+            schedule();
+        }
+    }
+
+    /**
+     * Sets master scroll position, all members will be updated on the next frame
+     * @see ScrollingBackgroundView#scrollTo(int, int)
+     */
+    public void scrollTo(int x, int y) {
+        if (mScrollX != x || mScrollY != y) {
+            mScrollX = x;
+            mScrollY = y;
+            mDirty = true;
+            schedule();
+        }
+    }
+
+    /**
+     * Scrolls master position with a constant velocity (stops if both values are 0).
+     * Members must not have their own velocity
+     * @see ScrollingBackgroundView#setScrollVelocity(float, float)
+     */
+    public void setScrollVelocity(float dxPerSecond, float dyPerSecond) {
+        final boolean hadVelocity = mIntegrator.hasVelocity();
+        mIntegrator.setVelocity(dxPerSecond, dyPerSecond);
+        if (!hadVelocity) {
+            mIntegrator.reset();
+        }
+        schedule();
+    }
+
+    /**
+     * @return master scroll x
+     */
+    public int scrollX() {
+        return mScrollX;
+    }
+
+    /**
+     * @return master scroll y
+     */
+    public int scrollY() {
+        return mScrollY;
+    }
+
+    private void schedule() {
+        if (!mScheduled
+                && mMembers.size() > 0
+                && (mDirty || (mIntegrator.hasVelocity() && hasActiveMember()))) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mTicker);
+        }
+    }
+
+    private void unschedule() {
+        if (mScheduled) {
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mTicker);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+
+        if (!mScheduled) {
+            return;
+        }
+
+        mScheduled = false;
+
+        if (mIntegrator.hasVelocity()) {
+
+            if (mIntegrator.integrate(frameTimeNanos)) {
+                mScrollX += mIntegrator.dx();
+                mScrollY += mIntegrator.dy();
+                mDirty = true;
+            }
+
+            // last frame time is kept, so scrolling catches up when a member becomes active
+            if (hasActiveMember()) {
+                mScheduled = true;
+                Choreographer.getInstance().postFrameCallback(mTicker);
+            }
+        }
+
+        if (mDirty) {
+            mDirty = false;
+
+            final int scrollX = mScrollX;
+            final int scrollY = mScrollY;
+
+            Member member;
+
+            for (int i = 0, size = mMembers.size(); i < size; i++) {
+                member = mMembers.get(i);
+                member.view.scrollTo(
+                        (int) (scrollX * member.ratioX),
+                        (int) (scrollY * member.ratioY)
+                );
+            }
+        }
+    }
+
+    private boolean hasActiveMember() {
+        for (int i = 0, size = mMembers.size(); i < size; i++) {
+            if (mMembers.get(i).view.isActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOf(ScrollingBackgroundView view) {
+        for (int i = 0, size = mMembers.size(); i < size; i++) {
+            if (mMembers.get(i).view == view) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Member {
+
+        final ScrollingBackgroundView view;
+        final float ratioX;
+        final float ratioY;
+
+        Member(ScrollingBackgroundView view, float ratioX, float ratioY) {
+            this.view = view;
+            this.ratioX = ratioX;
+            this.ratioY = ratioY;
+        }
+    }
+
+    // keeps frame callback & view listeners out of public API
+    private class Ticker implements Choreographer.FrameCallback,
+            View.OnAttachStateChangeListener,
+            ScrollingBackgroundView.OnActiveStateChangedListener {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onFrame(frameTimeNanos);
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            remove((ScrollingBackgroundView) v);
+        }
+
+        @Override
+        public void onActiveStateChanged(ScrollingBackgroundView view, boolean active) {
+            if (active) {
+                schedule();
+            }
+        }
+    }
+}
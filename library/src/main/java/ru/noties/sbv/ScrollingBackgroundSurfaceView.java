@@ -0,0 +1,506 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.View;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ru.noties.sbv.core.ScrollChannel;
+import ru.noties.sbv.core.VelocityIntegrator;
+
+/**
+ * Alternative to {@link ScrollingBackgroundView} that draws tiles on its own render thread into
+ * a {@link TextureView} surface, so a busy main thread (long layout, heavy adapter binding) does not
+ * stall velocity scrolling. Tiles are drawn by the same renderer as in ScrollingBackgroundView.
+ * Scroll position and velocity are passed to the render thread through a lock-free {@link ScrollChannel},
+ * so {@link #scrollBy(int, int)} can be called on each scroll event without allocation.
+ * Supports `sbv_drawable`, `sbv_scrollX` and `sbv_scrollY` XML attributes.
+ * After a drawable is set it is used by the render thread and must not be modified, animated drawables
+ * are drawn with their current frame. Requires a hardware accelerated window (as any TextureView).
+ * Public methods must be called from the main thread
+ */
+public class ScrollingBackgroundSurfaceView extends TextureView implements TextureView.SurfaceTextureListener {
+
+    private final ScrollChannel mChannel = new ScrollChannel();
+
+    private Drawable mDrawable;
+
+    // exists while there is a surface to draw into, is read by scroll calls from other threads
+    private volatile RenderThread mRenderThread;
+
+    public ScrollingBackgroundSurfaceView(Context context) {
+        this(context, null);
+    }
+
+    public ScrollingBackgroundSurfaceView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ScrollingBackgroundSurfaceView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs);
+    }
+
+    private void init(Context context, AttributeSet attributeSet) {
+
+        setSurfaceTextureListener(this);
+
+        if (attributeSet != null) {
+            final TypedArray array = context.obtainStyledAttributes(attributeSet, R.styleable.ScrollingBackgroundView);
+            try {
+
+                scrollTo(
+                        array.getDimensionPixelSize(R.styleable.ScrollingBackgroundView_sbv_scrollX, 0),
+                        array.getDimensionPixelSize(R.styleable.ScrollingBackgroundView_sbv_scrollY, 0)
+                );
+
+                final int resId = array.getResourceId(R.styleable.ScrollingBackgroundView_sbv_drawable, 0);
+                if (resId != 0) {
+                    setDrawableResource(resId);
+                }
+
+            } finally {
+                array.recycle();
+            }
+        }
+    }
+
+    /**
+     * There is also an XML attribute `sbv_drawable`
+     * @param drawable to be tiled, NULL to clear. Is mutated (its constant state is not shared with
+     *                 drawables on the main thread) and is used by the render thread from now on
+     */
+    public void setDrawable(Drawable drawable) {
+
+        final Drawable value = drawable != null
+                ? drawable.mutate()
+                : null;
+
+        if (value != null) {
+            final Rect rect = value.getBounds();
+            if (rect.isEmpty()) {
+                value.setBounds(0, 0, value.getIntrinsicWidth(), value.getIntrinsicHeight());
+            }
+            // invalidations would arrive on the main thread
+            value.setCallback(null);
+        }
+
+        mDrawable = value;
+
+        // transparent tiles must not be drawn over black
+        setOpaque(value != null && value.getOpacity() == PixelFormat.OPAQUE);
+
+        if (mRenderThread != null) {
+            mRenderThread.setDrawable(value);
+        }
+    }
+
+    /**
+     * @param resId of a drawable to be tiled
+     * @see #setDrawable(Drawable)
+     */
+    public void setDrawableResource(int resId) {
+        setDrawable(ScrollingBackgroundView.resourceDrawable(getResources(), getContext().getTheme(), resId));
+    }
+
+    /**
+     * @return current drawable, must not be modified
+     */
+    public Drawable getDrawable() {
+        return mDrawable;
+    }
+
+    /**
+     * Can be called from any thread
+     * @see ScrollingBackgroundView#scrollBy(int, int)
+     */
+    @Override
+    public void scrollBy(int x, int y) {
+        if (mChannel.scrollBy(x, y)) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * Can be called from any thread
+     * @see ScrollingBackgroundView#scrollTo(int, int)
+     */
+    @Override
+    public void scrollTo(int x, int y) {
+        if (mChannel.scrollTo(x, y)) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * @return current scroll x (including velocity scrolling that happens on the render thread)
+     */
+    public int scrollX() {
+        return ScrollChannel.scrollX(mChannel.scroll());
+    }
+
+    /**
+     * @return current scroll y (including velocity scrolling that happens on the render thread)
+     */
+    public int scrollY() {
+        return ScrollChannel.scrollY(mChannel.scroll());
+    }
+
+    /**
+     * Velocity is integrated on the render thread, so scrolling stays smooth while main thread is busy.
+     * Is paused while this view is not visible
+     * @see ScrollingBackgroundView#setScrollVelocity(float, float)
+     */
+    public void setScrollVelocity(float dxPerSecond, float dyPerSecond) {
+        mChannel.setVelocity(dxPerSecond, dyPerSecond);
+        requestFrame();
+    }
+
+    /**
+     * @return current horizontal velocity in pixels per second
+     */
+    public float scrollVelocityX() {
+        return ScrollChannel.velocityX(mChannel.velocity());
+    }
+
+    /**
+     * @return current vertical velocity in pixels per second
+     */
+    public float scrollVelocityY() {
+        return ScrollChannel.velocityY(mChannel.velocity());
+    }
+
+    private void requestFrame() {
+        // read once, can be called from other threads
+        final RenderThread renderThread = mRenderThread;
+        if (renderThread != null) {
+            renderThread.requestFrame();
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+        final RenderThread renderThread = new RenderThread(mChannel);
+        renderThread.start();
+        renderThread.setDrawable(mDrawable);
+        renderThread.setVisible(isVisible());
+        renderThread.setSurface(new Surface(surfaceTexture), width, height);
+        mRenderThread = renderThread;
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+        if (mRenderThread != null) {
+            mRenderThread.setSize(width, height);
+        }
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        if (mRenderThread != null) {
+            // blocks until a frame that is being drawn is finished, surface texture can be released after that
+            mRenderThread.release();
+            mRenderThread = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+
+        if (mRenderThread != null) {
+            mRenderThread.setVisible(isVisible());
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+
+        if (mRenderThread != null) {
+            mRenderThread.setVisible(isVisible());
+        }
+    }
+
+    private boolean isVisible() {
+        return isShown()
+                && getWindowVisibility() == VISIBLE;
+    }
+
+    /**
+     * Owns the drawable (renderer) and draws it into the surface on each frame of its own Choreographer.
+     * Surface and its size are guarded by a lock, so main thread can take surface away at any time
+     */
+    private static class RenderThread extends HandlerThread implements Handler.Callback, Choreographer.FrameCallback {
+
+        private static final int MSG_FRAME = 0;
+        private static final int MSG_INVALIDATE = 1;
+        private static final int MSG_DRAWABLE = 2;
+        private static final int MSG_VISIBLE = 3;
+        private static final int MSG_QUIT = 4;
+
+        private final ScrollChannel mChannel;
+
+        // set when a frame is requested, so a burst of scroll events posts a single message
+        private final AtomicBoolean mFrameRequested = new AtomicBoolean();
+
+        private final Object mSurfaceLock = new Object();
+        private Surface mSurface;
+        private int mWidth;
+        private int mHeight;
+
+        private Handler mHandler;
+
+        // fields below are accessed on the render thread only
+        private Choreographer mChoreographer;
+        private boolean mScheduled;
+        private boolean mDirty;
+        private boolean mVisible;
+
+        private TileRenderer mRenderer;
+        private final Rect mArea = new Rect();
+
+        private final VelocityIntegrator mIntegrator = new VelocityIntegrator();
+        private long mVelocity;
+
+        RenderThread(ScrollChannel channel) {
+            super("ScrollingBackgroundSurfaceView", Process.THREAD_PRIORITY_DISPLAY);
+            mChannel = channel;
+        }
+
+        @Override
+        public synchronized void start() {
+            super.start();
+            // blocks until looper is prepared
+            mHandler = new Handler(getLooper(), this);
+        }
+
+        @Override
+        protected void onLooperPrepared() {
+            // choreographer of this thread
+            mChoreographer = Choreographer.getInstance();
+        }
+
+        void setSurface(Surface surface, int width, int height) {
+            synchronized (mSurfaceLock) {
+                mSurface = surface;
+                mWidth = width;
+                mHeight = height;
+            }
+            mHandler.sendEmptyMessage(MSG_INVALIDATE);
+        }
+
+        void setSize(int width, int height) {
+            synchronized (mSurfaceLock) {
+                mWidth = width;
+                mHeight = height;
+            }
+            mHandler.sendEmptyMessage(MSG_INVALIDATE);
+        }
+
+        /**
+         * Releases surface right away and quits after all pending messages are handled
+         */
+        void release() {
+            synchronized (mSurfaceLock) {
+                if (mSurface != null) {
+                    mSurface.release();
+                    mSurface = null;
+                }
+            }
+            // renderer caches are released on the render thread
+            mHandler.sendEmptyMessage(MSG_QUIT);
+        }
+
+        void setDrawable(Drawable drawable) {
+            mHandler.obtainMessage(MSG_DRAWABLE, drawable).sendToTarget();
+        }
+
+        void setVisible(boolean visible) {
+            mHandler.obtainMessage(MSG_VISIBLE, visible ? 1 : 0, 0).sendToTarget();
+        }
+
+        void requestFrame() {
+            if (mFrameRequested.compareAndSet(false, true)) {
+                mHandler.sendEmptyMessage(MSG_FRAME);
+            }
+        }
+
+        @Override
+        public boolean handleMessage(Message msg) {
+
+            switch (msg.what) {
+
+                case MSG_FRAME:
+                    schedule();
+                    break;
+
+                case MSG_INVALIDATE:
+                    mDirty = true;
+                    schedule();
+                    break;
+
+                case MSG_DRAWABLE:
+                    final Drawable drawable = (Drawable) msg.obj;
+                    if (mRenderer != null) {
+                        mRenderer.release();
+                    }
+                    mRenderer = drawable != null
+                            ? new TileRenderer(drawable)
+                            : null;
+                    mDirty = true;
+                    schedule();
+                    break;
+
+                case MSG_VISIBLE:
+                    mVisible = msg.arg1 == 1;
+                    // nothing is drawn while invisible
+                    mDirty = true;
+                    schedule();
+                    break;
+
+                case MSG_QUIT:
+                    mChoreographer.removeFrameCallback(this);
+                    if (mRenderer != null) {
+                        mRenderer.release();
+                        mRenderer = null;
+                    }
+                    getLooper().quit();
+                    break;
+
+                default:
+                    return false;
+            }
+
+            return true;
+        }
+
+        private void schedule() {
+            if (!mScheduled
+                    && mVisible) {
+                mScheduled = true;
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+
+            mScheduled = false;
+
+            // requests that arrive after this point post a new frame
+            mFrameRequested.set(false);
+
+            final long velocity = mChannel.velocity();
+            if (mVelocity != velocity) {
+                final boolean hadVelocity = mIntegrator.hasVelocity();
+                mVelocity = velocity;
+                mIntegrator.setVelocity(ScrollChannel.velocityX(velocity), ScrollChannel.velocityY(velocity));
+                if (!hadVelocity) {
+                    mIntegrator.reset();
+                }
+            }
+
+            // last frame time is kept while invisible, so scrolling catches up when visible again
+            if (mVisible
+                    && mIntegrator.hasVelocity()
+                    && mIntegrator.integrate(frameTimeNanos)) {
+                mChannel.scrollBy(mIntegrator.dx(), mIntegrator.dy());
+            }
+
+            final long scroll = mChannel.scroll();
+            draw(ScrollChannel.scrollX(scroll), ScrollChannel.scrollY(scroll));
+
+            if (mIntegrator.hasVelocity()) {
+                schedule();
+            }
+        }
+
+        private void draw(int scrollX, int scrollY) {
+
+            if (!mVisible) {
+                return;
+            }
+
+            final TileRenderer renderer = mRenderer;
+
+            if (!mDirty
+                    && (renderer == null || !renderer.isPhaseChanged(scrollX, scrollY))) {
+                return;
+            }
+
+            synchronized (mSurfaceLock) {
+
+                final Surface surface = mSurface;
+                if (surface == null
+                        || mWidth <= 0
+                        || mHeight <= 0) {
+                    return;
+                }
+
+                final Canvas canvas;
+                try {
+                    canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                            ? surface.lockHardwareCanvas()
+                            : surface.lockCanvas(null);
+                } catch (IllegalArgumentException | Surface.OutOfResourcesException e) {
+                    // surface is being destroyed, next frame will be drawn into a new one
+                    return;
+                }
+
+                try {
+                    if (renderer == null
+                            || !renderer.isOpaque()) {
+                        canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+                    }
+                    if (renderer != null) {
+                        mArea.set(0, 0, mWidth, mHeight);
+                        renderer.draw(canvas, scrollX, scrollY, mWidth, mHeight, mArea, null);
+                    }
+                } finally {
+                    surface.unlockCanvasAndPost(canvas);
+                }
+
+                mDirty = false;
+            }
+        }
+    }
+}
@@ -17,18 +17,38 @@
 package ru.noties.sbv;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.TypedValue;
 import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.noties.sbv.core.FrameThrottle;
 
 /**
  * A simple View that will tile supplied background creating
  * an `endless` background feeling.
  * Does not scroll by itself, call {@link #scrollBy(int, int)}
  * or {@link #scrollTo(int, int)} methods. Negative values are OK.
+ * Tiles are drawn inside padded area of this view, only tiles that are visible (not clipped) are drawn.
+ * For a constant speed scrolling use {@link #setScrollVelocity(float, float)}.
+ * Additional parallax layers can be added with {@link #addLayer(Drawable, float, float)},
+ * all of them are drawn in one pass from the same scroll position.
  * If you wish to get current values of scrollX or scrollY, call
  * {@link #scrollX()} or {@link #scrollY()}. Another methods
  * are needed because system methods {@link #getScaleX()} and
@@ -39,6 +59,38 @@ import android.view.View;
  */
 public class ScrollingBackgroundView extends View {
 
+    private static final int MAX_TINT_FILTERS = 256;
+
+    /**
+     * Frame rate of autonomous motion that is not limited (every frame is used)
+     * @see #setMaxFrameRate(int)
+     */
+    public static final int FRAME_RATE_UNLIMITED = FrameThrottle.FRAME_RATE_UNLIMITED;
+
+    /**
+     * Frame rate of autonomous motion that stops it completely (last drawn frame stays on screen)
+     * @see #setMaxFrameRate(int)
+     */
+    public static final int FRAME_RATE_STATIC = FrameThrottle.FRAME_RATE_STATIC;
+
+    /**
+     * Tiles are laid out as a plain grid
+     * @see #setTileLayout(int, float)
+     */
+    public static final int TILE_LAYOUT_GRID = 0;
+
+    /**
+     * Each row of tiles is shifted horizontally relative to the previous one (brick wall)
+     * @see #setTileLayout(int, float)
+     */
+    public static final int TILE_LAYOUT_BRICK_X = 1;
+
+    /**
+     * Each column of tiles is shifted vertically relative to the previous one (half-drop)
+     * @see #setTileLayout(int, float)
+     */
+    public static final int TILE_LAYOUT_HALF_DROP_Y = 2;
+
     /**
      * Simple listener to be notified when this view size has changed
      */
@@ -51,13 +103,112 @@ public class ScrollingBackgroundView extends View {
         void onSizeChanged(int width, int height);
     }
 
+    /**
+     * Listener to be notified after each draw call when render stats are enabled
+     * @see #setRenderStatsEnabled(boolean)
+     */
+    public interface OnRenderStatsListener {
+        /**
+         * Is called on the main thread right after drawing. The same instance is passed each time
+         * and is updated in place, use {@link ScrollingBackgroundView#renderStats(RenderStats)}
+         * to keep a copy
+         * @param stats current stats
+         */
+        void onRenderStats(RenderStats stats);
+    }
+
+    /**
+     * Listener to be notified when this view is paused or resumed
+     * @see #isActive()
+     */
+    public interface OnActiveStateChangedListener {
+        /**
+         * Can be used to pause own animations that scroll this view
+         * @param view which state has changed
+         * @param active if view can be seen
+         */
+        void onActiveStateChanged(ScrollingBackgroundView view, boolean active);
+    }
+
     private Drawable mDrawable;
+    private TileRenderer mRenderer;
+
+    // resource of the current drawable (if it was loaded from resources), 0 otherwise
+    private int mDrawableResId;
+    private final TileDecoder mTileDecoder = new TileDecoder();
+
+    // handle is released on detach, key is kept to acquire the same tile again on attach
+    private boolean mSharedTileCacheEnabled;
+    private SharedTileCache.Handle mTileHandle;
+    private SharedTileCache.Key mTileKey;
+
+    // created when the first resource is loaded asynchronously
+    private AsyncTileLoader mAsyncTileLoader;
+    private boolean mAsyncDecodingEnabled;
+    private Paint mPlaceholderPaint;
+
+    // resource that will be loaded when this view is first visible on screen, 0 if there is none
+    private boolean mLazyLoadEnabled;
+    private int mLazyResId;
+    private ViewTreeObserver.OnPreDrawListener mLazyLoadListener;
+    private final Rect mVisibleRect = new Rect();
+    private final List<TileLayer> mLayers = new ArrayList<>(3);
+
+    private final Rect mDrawingArea = new Rect();
+
+    // filters are immutable, so one is created for each color (and mode) and then reused
+    private final SparseArray<ColorFilter> mTintFilters = new SparseArray<>();
+    private PorterDuff.Mode mTintFiltersMode;
+
+    private ColorFilter mTint;
+    private int mTintColor;
+    private PorterDuff.Mode mTintMode;
+    private boolean mTileCacheEnabled;
+    private float mTileScale = 1.F;
+    private Matrix mPatternTransform;
+    private int mTileLayout = TILE_LAYOUT_GRID;
+    private float mTileLayoutOffset = .5F;
 
     private int mScrollX;
     private int mScrollY;
 
     private OnSizeChangedListener mOnSizeChangedListener;
 
+    private final AutoScroller mAutoScroller = new AutoScroller(this);
+
+    // created with the first fling
+    private Flinger mFlinger;
+
+    // View#isAttachedToWindow is available starting with KITKAT
+    private boolean mAttached;
+
+    // attached, shown and window is visible (and focused if requested), no work is done while inactive
+    private boolean mActive;
+    private boolean mPauseOnWindowFocusLoss;
+    private OnActiveStateChangedListener mOnActiveStateChangedListener;
+    // used by ScrollGroup, so it does not take the place of a client listener
+    private OnActiveStateChangedListener mActiveStateObserver;
+
+    // an invalidation was dropped while inactive, view is redrawn when it becomes active
+    private boolean mInvalidationDropped;
+
+    // applies only to motion of this view itself (velocity scroll, animated drawables)
+    private int mMaxFrameRate;
+    private int mPowerSaveFrameRate;
+    private boolean mPowerSaveMode;
+    private PowerSaveMonitor.Listener mPowerSaveListener;
+    // active and frame rate is not static
+    private boolean mMotionEnabled;
+
+    // a redraw is already scheduled, all changes until it happens are merged into it
+    private boolean mInvalidationPending;
+    private long mInvalidationsRequested;
+    private long mInvalidationsPerformed;
+
+    // NULL when stats are disabled
+    private RenderStats mRenderStats;
+    private OnRenderStatsListener mOnRenderStatsListener;
+
     public ScrollingBackgroundView(Context context) {
         this(context, null);
     }
@@ -79,9 +230,31 @@ public class ScrollingBackgroundView extends View {
 
                 mScrollX = array.getDimensionPixelSize(R.styleable.ScrollingBackgroundView_sbv_scrollX, 0);
                 mScrollY = array.getDimensionPixelSize(R.styleable.ScrollingBackgroundView_sbv_scrollY, 0);
+                mTileCacheEnabled = array.getBoolean(R.styleable.ScrollingBackgroundView_sbv_tileCache, false);
+                mTileScale = checkTileScale(array.getFloat(R.styleable.ScrollingBackgroundView_sbv_tileScale, 1.F));
+                mTileLayout = checkTileLayout(array.getInt(R.styleable.ScrollingBackgroundView_sbv_tileLayout, TILE_LAYOUT_GRID));
+                mTileLayoutOffset = checkTileLayoutOffset(array.getFloat(R.styleable.ScrollingBackgroundView_sbv_tileLayoutOffset, .5F));
+
+                mTileDecoder.setMemoryBudget(array.getInteger(R.styleable.ScrollingBackgroundView_sbv_tileMemoryBudget, 0));
+                mTileDecoder.setSampleSize(array.getInteger(R.styleable.ScrollingBackgroundView_sbv_tileSampleSize, 1));
+                mTileDecoder.setHardware(array.getBoolean(R.styleable.ScrollingBackgroundView_sbv_hardwareTiles, false));
+                mSharedTileCacheEnabled = array.getBoolean(R.styleable.ScrollingBackgroundView_sbv_sharedTileCache, false);
+                mAsyncDecodingEnabled = array.getBoolean(R.styleable.ScrollingBackgroundView_sbv_asyncDecoding, false);
+                mLazyLoadEnabled = array.getBoolean(R.styleable.ScrollingBackgroundView_sbv_lazyLoad, false);
+                mPauseOnWindowFocusLoss = array.getBoolean(R.styleable.ScrollingBackgroundView_sbv_pauseOnWindowFocusLoss, false);
+                mMaxFrameRate = checkFrameRate(array.getInt(R.styleable.ScrollingBackgroundView_sbv_maxFrameRate, FRAME_RATE_UNLIMITED));
+                mPowerSaveFrameRate = checkFrameRate(array.getInt(R.styleable.ScrollingBackgroundView_sbv_powerSaveFrameRate, FRAME_RATE_UNLIMITED));
+
+                if (array.hasValue(R.styleable.ScrollingBackgroundView_sbv_placeholderColor)) {
+                    setPlaceholderColor(array.getColor(R.styleable.ScrollingBackgroundView_sbv_placeholderColor, 0));
+                }
 
-                final Drawable drawable = array.getDrawable(R.styleable.ScrollingBackgroundView_sbv_drawable);
-                setDrawable(drawable);
+                final int resId = array.getResourceId(R.styleable.ScrollingBackgroundView_sbv_drawable, 0);
+                if (resId != 0) {
+                    setDrawableResource(resId);
+                } else {
+                    setDrawable(array.getDrawable(R.styleable.ScrollingBackgroundView_sbv_drawable));
+                }
 
             } finally {
                 array.recycle();
@@ -92,20 +265,35 @@ public class ScrollingBackgroundView extends View {
     /**
      * Set the drawable object manually. There is also an XML attribute `sbv_drawable`
      * If provided via XML the intrinsic bounds will be used.
-     * The drawable will be <i>tiled</i> to fill this view
+     * The drawable will be <i>tiled</i> to fill this view. A plain {@link android.graphics.drawable.BitmapDrawable}
+     * is drawn with a single repeating shader (since {@link android.os.Build.VERSION_CODES#LOLLIPOP} its tint
+     * cannot be read, so its copy that repeats the bitmap and applies own tint is drawn instead),
+     * all other drawables are drawn tile by tile.
+     * Animated drawables (for example {@link SpriteSheetDrawable} or {@link android.graphics.drawable.AnimationDrawable})
+     * are supported: each frame is rendered once and shared by all tiles
      * @param drawable to be tiled and drawn as background
      */
     public void setDrawable(Drawable drawable) {
+        cancelLazyLoading();
+        cancelAsyncLoading();
+        releaseTileHandle();
+        mTileKey = null;
+        mDrawableResId = 0;
+        applyDrawable(drawable);
+    }
+
+    private void applyDrawable(Drawable drawable) {
+        if (mRenderer != null) {
+            disposeRenderer(mRenderer);
+        }
         mDrawable = drawable;
         if (mDrawable != null) {
-            final Rect rect = mDrawable.getBounds();
-            if (rect == null
-                    || rect.isEmpty()) {
-                mDrawable.setBounds(0, 0, mDrawable.getIntrinsicWidth(), mDrawable.getIntrinsicHeight());
-            }
+            mRenderer = createRenderer(mDrawable);
             setWillNotDraw(false);
+        } else {
+            mRenderer = null;
         }
-        postInvalidateOnAnimation();
+        invalidateFrame();
     }
 
     /**
@@ -116,122 +304,1464 @@ public class ScrollingBackgroundView extends View {
     }
 
     /**
-     *
-     * @param listener to be notified when the size changes, or NULL to stop listening
-     * @see OnSizeChangedListener
+     * Loads drawable from resources (this is what `sbv_drawable` XML attribute does). Bitmap resources
+     * are decoded with the current tile memory settings, drawable keeps its unsampled size.
+     * Other resources (vector, shape, etc) are loaded as is.
+     * If tile memory settings change later, drawable is loaded again
+     * @param resId of a drawable or 0 to remove drawable
+     * @see #setTileMemoryBudget(int)
+     * @see #setTileSampleSize(int)
+     * @see #setHardwareTilesEnabled(boolean)
      */
-    public void setOnSizeChangedListener(OnSizeChangedListener listener) {
-        this.mOnSizeChangedListener = listener;
-    }
+    public void setDrawableResource(int resId) {
 
-    @Override
-    public void scrollBy(int x, int y) {
-        if (y != 0 || x != 0) {
-            mScrollX += x;
-            mScrollY += y;
-            postInvalidateOnAnimation();
+        cancelLazyLoading();
+        cancelAsyncLoading();
+
+        if (resId != 0
+                && mLazyLoadEnabled
+                && !isVisibleOnScreen()) {
+            loadDrawableLazy(resId);
+            return;
+        }
+
+        if (resId != 0
+                && mAsyncDecodingEnabled) {
+            loadDrawableAsync(resId);
+            return;
+        }
+
+        final SharedTileCache.Handle previous = mTileHandle;
+        mTileHandle = null;
+        mTileKey = null;
+
+        final Drawable drawable = resId != 0 ? loadDrawable(resId) : null;
+
+        // released after the new one is acquired, so the same tile is not evicted in between
+        if (previous != null) {
+            previous.release();
+        }
+
+        applyDrawable(drawable);
+        mDrawableResId = resId;
+
+        // a detached view (for example one inflated from XML) holds the tile only once it is attached
+        if (!mAttached) {
+            releaseTileHandle();
         }
     }
 
-    @Override
-    public void scrollTo(int x, int y) {
-        if (mScrollY != y
-                || mScrollX != x) {
-            mScrollX = x;
-            mScrollY = y;
-            postInvalidateOnAnimation();
+    /**
+     * Makes {@link #setDrawableResource(int)} (and `sbv_drawable` XML attribute) only remember
+     * the resource until this view is attached, shown and at least partially visible on screen
+     * (for example a page of a ViewPager that is laid out off screen is not loaded until it is scrolled into view).
+     * There is also an XML attribute `sbv_lazyLoad`. Views that are never shown never load their drawables.
+     * Works with {@link #setAsyncDecodingEnabled(boolean)}
+     * @param enabled to load drawable resources lazily
+     */
+    public void setLazyLoadEnabled(boolean enabled) {
+        if (mLazyLoadEnabled != enabled) {
+            mLazyLoadEnabled = enabled;
+            if (!enabled
+                    && mLazyResId != 0) {
+                setDrawableResource(mLazyResId);
+            }
         }
     }
 
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
+    /**
+     * @return if drawable resources are loaded lazily
+     * @see #setLazyLoadEnabled(boolean)
+     */
+    public boolean isLazyLoadEnabled() {
+        return mLazyLoadEnabled;
+    }
 
-        if (mOnSizeChangedListener != null) {
-            mOnSizeChangedListener.onSizeChanged(w, h);
+    /**
+     * View is active when it is attached to window, shown (this view and all its parents are visible)
+     * and window is visible. While inactive auto scroll ({@link #setScrollVelocity(float, float)})
+     * is paused, animated drawables are stopped and redraws are dropped (a single one is performed
+     * when view becomes active again), so a view on a background screen costs no CPU
+     * @return if this view is active
+     * @see #setPauseOnWindowFocusLoss(boolean)
+     * @see #setOnActiveStateChangedListener(OnActiveStateChangedListener)
+     */
+    public boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * Makes this view also pause when its window loses focus (for example when a translucent activity
+     * or a dialog is shown above). There is also an XML attribute `sbv_pauseOnWindowFocusLoss`
+     * @param pause to treat unfocused window as not visible
+     * @see #isActive()
+     */
+    public void setPauseOnWindowFocusLoss(boolean pause) {
+        if (mPauseOnWindowFocusLoss != pause) {
+            mPauseOnWindowFocusLoss = pause;
+            updateActiveState();
         }
     }
 
     /**
-     * Getter for current {@link #mScrollX}
-     * @return current {@link #mScrollX}
+     * @return if this view is paused when its window loses focus
+     * @see #setPauseOnWindowFocusLoss(boolean)
      */
-    public int scrollX() {
-        return mScrollX;
+    public boolean isPauseOnWindowFocusLoss() {
+        return mPauseOnWindowFocusLoss;
     }
 
     /**
-     * Getter for current {@link #mScrollY}
-     * @return current {@link #mScrollY}
+     * @param listener to be notified when this view is paused or resumed, NULL to remove
+     * @see #isActive()
      */
-    public int scrollY() {
-        return mScrollY;
+    public void setOnActiveStateChangedListener(OnActiveStateChangedListener listener) {
+        this.mOnActiveStateChangedListener = listener;
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        // to draw possible background, etc
-        super.onDraw(canvas);
+    /**
+     * Caps frame rate of autonomous motion (velocity scroll, {@link #setScrollVelocity(float, float)}),
+     * a slowly moving decorative background does not need to be redrawn on each vsync.
+     * {@link #FRAME_RATE_STATIC} also stops animated drawables (they keep their own frame timing otherwise).
+     * Scroll changes that come from outside ({@link #scrollBy(int, int)}, {@link #scrollTo(int, int)},
+     * ScrollGroup, etc) are never throttled.
+     * There is also an XML attribute `sbv_maxFrameRate`
+     * @param framesPerSecond positive value, {@link #FRAME_RATE_UNLIMITED} or {@link #FRAME_RATE_STATIC}
+     * @see #setPowerSaveFrameRate(int)
+     */
+    public void setMaxFrameRate(int framesPerSecond) {
+        mMaxFrameRate = checkFrameRate(framesPerSecond);
+        updateMotion();
+    }
+
+    /**
+     * @return frame rate cap of autonomous motion
+     * @see #setMaxFrameRate(int)
+     */
+    public int getMaxFrameRate() {
+        return mMaxFrameRate;
+    }
+
+    /**
+     * Frame rate of autonomous motion to be used when device is in battery saver mode (API 21+),
+     * the stricter of this value and {@link #getMaxFrameRate()} is applied. Power save mode is tracked
+     * only while this view is attached and value is not {@link #FRAME_RATE_UNLIMITED}.
+     * There is also an XML attribute `sbv_powerSaveFrameRate`
+     * @param framesPerSecond positive value, {@link #FRAME_RATE_UNLIMITED} or {@link #FRAME_RATE_STATIC}
+     * @see #setMaxFrameRate(int)
+     */
+    public void setPowerSaveFrameRate(int framesPerSecond) {
+        mPowerSaveFrameRate = checkFrameRate(framesPerSecond);
+        updatePowerSaveMonitor();
+        updateMotion();
+    }
+
+    /**
+     * @return frame rate of autonomous motion in battery saver mode
+     * @see #setPowerSaveFrameRate(int)
+     */
+    public int getPowerSaveFrameRate() {
+        return mPowerSaveFrameRate;
+    }
+
+    private static int checkFrameRate(int framesPerSecond) {
+        if (framesPerSecond < FRAME_RATE_STATIC) {
+            throw new IllegalArgumentException("Invalid frame rate: " + framesPerSecond);
+        }
+        return framesPerSecond;
+    }
+
+    // frame rate that is currently in effect
+    private int frameRate() {
+        return FrameThrottle.frameRate(mMaxFrameRate, mPowerSaveFrameRate, mPowerSaveMode);
+    }
+
+    private void updatePowerSaveMonitor() {
+
+        final boolean monitor = mAttached
+                && mPowerSaveFrameRate != FRAME_RATE_UNLIMITED
+                && !isInEditMode();
+
+        if (monitor) {
+            if (mPowerSaveListener == null) {
+                mPowerSaveListener = new PowerSaveMonitor.Listener() {
+                    @Override
+                    public void onPowerSaveModeChanged(boolean powerSaveMode) {
+                        mPowerSaveMode = powerSaveMode;
+                        updateMotion();
+                    }
+                };
+            }
+            final PowerSaveMonitor powerSaveMonitor = PowerSaveMonitor.getInstance();
+            powerSaveMonitor.register(getContext(), mPowerSaveListener);
+            mPowerSaveMode = powerSaveMonitor.isPowerSaveMode();
+        } else {
+            if (mPowerSaveListener != null) {
+                PowerSaveMonitor.getInstance().unregister(mPowerSaveListener);
+            }
+            mPowerSaveMode = false;
+        }
+    }
+
+    // lets velocity scroll & animated drawables run only when view is active and frame rate allows it
+    private void updateMotion() {
+
+        final int frameRate = frameRate();
+        final boolean enabled = mActive && frameRate != FRAME_RATE_STATIC;
 
-        final Drawable drawable = mDrawable;
-        if (drawable == null) {
+        mAutoScroller.setFrameRate(frameRate);
+        mAutoScroller.setActive(enabled);
+
+        if (mMotionEnabled == enabled) {
             return;
         }
 
-        final int scrollX = mScrollX;
-        final int scrollY = mScrollY;
+        mMotionEnabled = enabled;
+
+        if (mRenderer != null) {
+            mRenderer.drawable().setVisible(enabled, false);
+        }
 
-        final int width = canvas.getWidth();
-        final int height = canvas.getHeight();
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            mLayers.get(i).renderer.drawable().setVisible(enabled, false);
+        }
+    }
 
-        final Rect rect = drawable.getBounds();
+    void setActiveStateObserver(OnActiveStateChangedListener observer) {
+        this.mActiveStateObserver = observer;
+    }
+
+    OnActiveStateChangedListener activeStateObserver() {
+        return mActiveStateObserver;
+    }
+
+    /**
+     * Makes {@link #setDrawableResource(int)} (and `sbv_drawable` XML attribute) decode tiles on
+     * a background thread. There is also an XML attribute `sbv_asyncDecoding`. Until tile is ready
+     * the previous drawable (or a placeholder color if there is none) is drawn, then the new tile is swapped in
+     * on the next frame. A request that is superseded by another call to {@link #setDrawableResource(int)}
+     * or {@link #setDrawable(Drawable)} is cancelled. Non-bitmap resources are loaded on the main thread
+     * (unless they are rendered into {@link SharedTileCache})
+     * @param enabled to decode tiles asynchronously
+     * @see #setPlaceholderColor(int)
+     */
+    public void setAsyncDecodingEnabled(boolean enabled) {
+        mAsyncDecodingEnabled = enabled;
+    }
+
+    /**
+     * @return if tiles are decoded on a background thread
+     * @see #setAsyncDecodingEnabled(boolean)
+     */
+    public boolean isAsyncDecodingEnabled() {
+        return mAsyncDecodingEnabled;
+    }
+
+    /**
+     * Color that fills this view while a tile is being decoded asynchronously and there is no drawable yet.
+     * There is also an XML attribute `sbv_placeholderColor`
+     * @param color placeholder color, {@link android.graphics.Color#TRANSPARENT} to draw nothing
+     * @see #setAsyncDecodingEnabled(boolean)
+     */
+    public void setPlaceholderColor(int color) {
+        if (mPlaceholderPaint == null) {
+            mPlaceholderPaint = new Paint();
+        }
+        mPlaceholderPaint.setColor(color);
+        if (isAsyncLoading()) {
+            invalidateFrame();
+        }
+    }
+
+    /**
+     * @return placeholder color
+     * @see #setPlaceholderColor(int)
+     */
+    public int getPlaceholderColor() {
+        return mPlaceholderPaint != null ? mPlaceholderPaint.getColor() : 0;
+    }
+
+    /**
+     * Makes {@link #setDrawableResource(int)} (and `sbv_drawable` XML attribute) take tiles from
+     * the process-wide {@link SharedTileCache}, so the same tile is decoded once for all views and screens.
+     * There is also an XML attribute `sbv_sharedTileCache`. If tile cache is enabled when a non-bitmap
+     * drawable (vector, shape, etc) is loaded, it is rendered once into a shared bitmap.
+     * Tile is released when this view is detached from window and acquired again when it is attached
+     * @param enabled to use shared tile cache
+     * @see #setTileCacheEnabled(boolean)
+     */
+    public void setSharedTileCacheEnabled(boolean enabled) {
+        if (mSharedTileCacheEnabled != enabled) {
+            mSharedTileCacheEnabled = enabled;
+            reloadDrawableResource();
+        }
+    }
+
+    /**
+     * @return if tiles are taken from {@link SharedTileCache}
+     * @see #setSharedTileCacheEnabled(boolean)
+     */
+    public boolean isSharedTileCacheEnabled() {
+        return mSharedTileCacheEnabled;
+    }
+
+    /**
+     * Limits the size of a tile decoded by {@link #setDrawableResource(int)}. There is also
+     * an XML attribute `sbv_tileMemoryBudget`. When set, tiles without alpha channel are decoded
+     * as {@link android.graphics.Bitmap.Config#RGB_565} and sample size is increased until the tile fits
+     * @param bytes maximum size of a decoded tile, 0 for no limit
+     */
+    public void setTileMemoryBudget(int bytes) {
+        if (mTileDecoder.memoryBudget() != bytes) {
+            mTileDecoder.setMemoryBudget(bytes);
+            reloadDrawableResource();
+        }
+    }
+
+    /**
+     * @return maximum size of a decoded tile in bytes, 0 if there is no limit
+     * @see #setTileMemoryBudget(int)
+     */
+    public int getTileMemoryBudget() {
+        return mTileDecoder.memoryBudget();
+    }
+
+    /**
+     * Sets target sample size for tiles decoded by {@link #setDrawableResource(int)}, for example
+     * `2` decodes a tile with a half of its resolution. There is also an XML attribute `sbv_tileSampleSize`.
+     * Memory budget can increase it further
+     * @param sampleSize a power of 2 (other values are rounded up to the next power of 2)
+     */
+    public void setTileSampleSize(int sampleSize) {
+        if (mTileDecoder.sampleSize() != sampleSize) {
+            mTileDecoder.setSampleSize(sampleSize);
+            reloadDrawableResource();
+        }
+    }
+
+    /**
+     * @return target sample size
+     * @see #setTileSampleSize(int)
+     */
+    public int getTileSampleSize() {
+        return mTileDecoder.sampleSize();
+    }
+
+    /**
+     * Decodes tiles loaded by {@link #setDrawableResource(int)} as hardware bitmaps (starting with API 26,
+     * ignored on older versions). There is also an XML attribute `sbv_hardwareTiles`.
+     * Hardware bitmap is uploaded to GPU once and takes no regular memory, but it cannot be
+     * drawn on a software canvas: do not enable if this view is drawn into a bitmap or is a child
+     * of a software layer. Is ignored if this view itself has {@link #LAYER_TYPE_SOFTWARE}
+     * @param enabled to decode tiles as hardware bitmaps
+     */
+    public void setHardwareTilesEnabled(boolean enabled) {
+        if (mTileDecoder.isHardware() != enabled) {
+            mTileDecoder.setHardware(enabled);
+            reloadDrawableResource();
+        }
+    }
+
+    /**
+     * @return if tiles are decoded as hardware bitmaps
+     * @see #setHardwareTilesEnabled(boolean)
+     */
+    public boolean isHardwareTilesEnabled() {
+        return mTileDecoder.isHardware();
+    }
+
+    private void reloadDrawableResource() {
+        if (mDrawableResId != 0) {
+            setDrawableResource(mDrawableResId);
+        }
+    }
+
+    private Drawable loadDrawable(int resId) {
+
+        final Resources resources = getResources();
+
+        if (mSharedTileCacheEnabled) {
+
+            final boolean allowHardware = isHardwareTileAllowed();
+            final boolean rasterize = mTileCacheEnabled;
+
+            final SharedTileCache.Key key = tileKey(resources, resId, allowHardware, rasterize);
+            final SharedTileCache.Handle handle = SharedTileCache.getInstance().acquire(
+                    key,
+                    tileLoader(resources, getContext().getTheme(), resId, mTileDecoder, allowHardware, rasterize)
+            );
+
+            if (handle != null) {
+                mTileHandle = handle;
+                mTileKey = key;
+                return tileDrawable(handle.tile());
+            }
+        }
+
+        if (mTileDecoder.isConfigured()) {
+            final Drawable drawable = mTileDecoder.decode(resources, resId, isHardwareTileAllowed());
+            if (drawable != null) {
+                return drawable;
+            }
+        }
+
+        return resourceDrawable(resources, getContext().getTheme(), resId);
+    }
+
+    private void loadDrawableLazy(int resId) {
+
+        // current drawable (if any) stays until the new one is loaded
+        mLazyResId = resId;
+        mDrawableResId = resId;
+
+        if (mLazyLoadListener == null) {
+            mLazyLoadListener = new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    if (isVisibleOnScreen()) {
+                        // loaded drawable is drawn in this frame
+                        setDrawableResource(mLazyResId);
+                    }
+                    return true;
+                }
+            };
+        }
+
+        if (mAttached) {
+            getViewTreeObserver().addOnPreDrawListener(mLazyLoadListener);
+        }
+    }
+
+    private void cancelLazyLoading() {
+        if (mLazyResId != 0) {
+            mLazyResId = 0;
+            if (mAttached) {
+                getViewTreeObserver().removeOnPreDrawListener(mLazyLoadListener);
+            }
+        }
+    }
+
+    private boolean isVisibleOnScreen() {
+        return mAttached
+                && isShown()
+                && getWindowVisibility() == VISIBLE
+                && getGlobalVisibleRect(mVisibleRect);
+    }
+
+    private void loadDrawableAsync(final int resId) {
 
-        final int drawableWidth = rect.width();
-        final int drawableHeight = rect.height();
+        final Resources resources = getResources();
+        final Resources.Theme theme = getContext().getTheme();
 
-        final int startX = start(scrollX, drawableWidth);
-        final int iterationsX = iterations(width, startX, drawableWidth);
+        // everything that is needed off the main thread is captured here
+        final boolean allowHardware = isHardwareTileAllowed();
+        final boolean rasterize = mTileCacheEnabled;
+        final TileDecoder decoder = mTileDecoder.copy();
+        final SharedTileCache.Key key = mSharedTileCacheEnabled
+                ? tileKey(resources, resId, allowHardware, rasterize)
+                : null;
 
-        final int startY = start(scrollY, drawableHeight);
-        final int iterationsY = iterations(height, startY, drawableHeight);
+        // current drawable stays until the new one is ready
+        mDrawableResId = resId;
 
-        final int save = canvas.save();
-        try {
+        if (mAsyncTileLoader == null) {
+            mAsyncTileLoader = new AsyncTileLoader(new AsyncTileLoader.Callback() {
+                @Override
+                public void onLoaded(AsyncTileLoader.Result result) {
+                    onAsyncTileLoaded(result);
+                }
+            });
+        }
 
-            canvas.translate(startX, startY);
+        mAsyncTileLoader.load(new AsyncTileLoader.Task() {
+            @Override
+            public AsyncTileLoader.Result load() {
 
-            for (int x = 0; x < iterationsX; x++) {
-                for (int y = 0; y < iterationsY; y++) {
-                    drawable.draw(canvas);
-                    canvas.translate(.0F, drawableHeight);
+                if (key != null) {
+                    final SharedTileCache.Handle handle = SharedTileCache.getInstance().acquire(
+                            key,
+                            tileLoader(resources, theme, resId, decoder, allowHardware, rasterize)
+                    );
+                    return handle != null
+                            ? new AsyncTileLoader.Result(handle.tile(), handle)
+                            : null;
                 }
-                canvas.translate(drawableWidth, -(drawableHeight * iterationsY));
+
+                final SharedTileCache.Tile tile = decoder.decodeTile(resources, resId, allowHardware);
+                return tile != null
+                        ? new AsyncTileLoader.Result(tile, null)
+                        : null;
             }
+        });
 
-        } finally {
-            canvas.restoreToCount(save);
+        if (mDrawable == null
+                && mPlaceholderPaint != null) {
+            setWillNotDraw(false);
+            invalidateFrame();
         }
     }
 
-    private static int start(int scroll, int side) {
+    // swaps in the result of the latest asynchronous request
+    private void onAsyncTileLoaded(AsyncTileLoader.Result result) {
 
-        final int start;
+        final SharedTileCache.Handle previous = mTileHandle;
 
-        final int modulo = Math.abs(scroll) % side;
-        if (modulo == 0) {
-            start = 0;
-        } else if (scroll < 0) {
-            start = -(side - modulo);
+        final Drawable drawable;
+        if (result != null) {
+            mTileHandle = result.handle;
+            mTileKey = result.handle != null ? result.handle.key() : null;
+            drawable = tileDrawable(result.tile);
         } else {
-            start = -modulo;
+            // not a bitmap
+            mTileHandle = null;
+            mTileKey = null;
+            drawable = resourceDrawable(getResources(), getContext().getTheme(), mDrawableResId);
+        }
+
+        if (previous != null) {
+            previous.release();
+        }
+
+        applyDrawable(drawable);
+
+        // could have been detached while loading
+        if (!mAttached) {
+            releaseTileHandle();
         }
+    }
+
+    private boolean isAsyncLoading() {
+        return mAsyncTileLoader != null
+                && mAsyncTileLoader.isLoading();
+    }
 
-        return start;
+    private void cancelAsyncLoading() {
+        if (mAsyncTileLoader != null) {
+            mAsyncTileLoader.cancel();
+        }
     }
 
-    private static int iterations(int total, int start, int side) {
-        final int diff = total - start;
-        final int base = diff / side;
-        return base + (diff % side > 0 ? 1 : 0);
+    private SharedTileCache.Key tileKey(Resources resources, int resId, boolean allowHardware, boolean rasterize) {
+
+        // resolved file tells which qualifiers (night mode, density, etc) were applied
+        final TypedValue value = new TypedValue();
+        resources.getValue(resId, value, true);
+        final String path = value.string != null ? value.string.toString() : null;
+
+        // bitmap files do not depend on theme, everything else can reference theme attributes
+        final boolean themed = path == null
+                || path.endsWith(".xml");
+
+        return new SharedTileCache.Key(
+                resId,
+                path,
+                themed ? getContext().getTheme() : null,
+                resources.getDisplayMetrics().densityDpi,
+                mTileDecoder.memoryBudget(),
+                mTileDecoder.sampleSize(),
+                mTileDecoder.isHardware() && allowHardware,
+                rasterize
+        );
+    }
+
+    // can be called on any thread
+    private static SharedTileCache.Loader tileLoader(
+            final Resources resources,
+            final Resources.Theme theme,
+            final int resId,
+            final TileDecoder decoder,
+            final boolean allowHardware,
+            final boolean rasterize) {
+        return new SharedTileCache.Loader() {
+            @Override
+            public SharedTileCache.Tile load() {
+                final SharedTileCache.Tile tile = decoder.decodeTile(resources, resId, allowHardware);
+                if (tile != null
+                        || !rasterize) {
+                    return tile;
+                }
+                return TileDecoder.rasterize(resourceDrawable(resources, theme, resId));
+            }
+        };
+    }
+
+    // hardware bitmaps cannot be drawn on a software canvas: software layer or offscreen bitmap of an offset layout
+    private boolean isHardwareTileAllowed() {
+        return getLayerType() != LAYER_TYPE_SOFTWARE
+                && mTileLayout == TILE_LAYOUT_GRID;
+    }
+
+    @SuppressWarnings("deprecation")
+    static Drawable resourceDrawable(Resources resources, Resources.Theme theme, int resId) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                ? resources.getDrawable(resId, theme)
+                : resources.getDrawable(resId);
+    }
+
+    private Drawable tileDrawable(SharedTileCache.Tile tile) {
+        // each view has own drawable (alpha, color filter, etc), bitmap is shared
+        final BitmapDrawable drawable = new TileBitmapDrawable(getResources(), tile.bitmap);
+        drawable.setBounds(0, 0, tile.width, tile.height);
+        return drawable;
+    }
+
+    private void releaseTileHandle() {
+        if (mTileHandle != null) {
+            mTileHandle.release();
+            mTileHandle = null;
+        }
+    }
+
+    // takes shared tile again after this view was detached, current bitmap is put back if it was evicted
+    private void reacquireTileHandle() {
+
+        if (mTileKey == null
+                || mTileHandle != null
+                || !(mDrawable instanceof BitmapDrawable)) {
+            return;
+        }
+
+        final BitmapDrawable current = (BitmapDrawable) mDrawable;
+        final Rect bounds = current.getBounds();
+        final SharedTileCache.Tile tile = new SharedTileCache.Tile(current.getBitmap(), bounds.width(), bounds.height());
+
+        final SharedTileCache.Handle handle = SharedTileCache.getInstance().acquire(mTileKey, new SharedTileCache.Loader() {
+            @Override
+            public SharedTileCache.Tile load() {
+                return tile;
+            }
+        });
+
+        mTileHandle = handle;
+
+        if (handle != null
+                && handle.tile().bitmap != tile.bitmap) {
+            // tile was decoded again by another view meanwhile, use it instead
+            applyDrawable(tileDrawable(handle.tile()));
+        }
+    }
+
+    /**
+     * Adds a parallax layer that will be tiled above the main drawable (and previously added layers).
+     * Layer scrolls with its own speed: scroll position of this view multiplied by supplied factors.
+     * All layers are drawn in one pass, so there is no need to stack multiple views.
+     * If drawable has no bounds, intrinsic ones will be used
+     * @param drawable to be tiled
+     * @param speedX horizontal speed factor relative to {@link #scrollX()}, for example `1.5F`
+     * @param speedY vertical speed factor relative to {@link #scrollY()}
+     * @see #removeLayer(Drawable)
+     * @see #clearLayers()
+     */
+    public void addLayer(Drawable drawable, float speedX, float speedY) {
+        mLayers.add(new TileLayer(createRenderer(drawable), speedX, speedY));
+        setWillNotDraw(false);
+        invalidateFrame();
+    }
+
+    /**
+     * @param drawable that was previously added via {@link #addLayer(Drawable, float, float)}
+     * @return if layer was found and removed
+     */
+    public boolean removeLayer(Drawable drawable) {
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            final TileRenderer renderer = mLayers.get(i).renderer;
+            if (renderer.drawable() == drawable) {
+                disposeRenderer(renderer);
+                mLayers.remove(i);
+                invalidateFrame();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all layers that were added via {@link #addLayer(Drawable, float, float)}
+     */
+    public void clearLayers() {
+        if (mLayers.size() > 0) {
+            for (int i = 0, size = mLayers.size(); i < size; i++) {
+                disposeRenderer(mLayers.get(i).renderer);
+            }
+            mLayers.clear();
+            invalidateFrame();
+        }
+    }
+
+    /**
+     * @return number of layers that were added via {@link #addLayer(Drawable, float, float)}
+     */
+    public int layerCount() {
+        return mLayers.size();
+    }
+
+    /**
+     * Tints all tiles (main drawable and layers) without modifying drawables.
+     * Calls with the same color and mode are no-op. A filter is created once for each
+     * color and then reused, so animating tint between a limited set of colors (see {@link TintRamp})
+     * does not allocate.
+     * A drawable that cannot be tiled with a shader directly is rendered into a single offscreen tile
+     * when tinted, so tint is applied in one pass
+     * @param color to tint with
+     * @param mode to apply color with, for example {@link PorterDuff.Mode#MULTIPLY}
+     * @see #clearTileTint()
+     * @see TintRamp
+     */
+    public void setTileTint(int color, PorterDuff.Mode mode) {
+
+        if (mTint != null
+                && mTintColor == color
+                && mTintMode == mode) {
+            return;
+        }
+
+        if (mTintFiltersMode != mode
+                || mTintFilters.size() >= MAX_TINT_FILTERS) {
+            mTintFilters.clear();
+            mTintFiltersMode = mode;
+        }
+
+        ColorFilter filter = mTintFilters.get(color);
+        if (filter == null) {
+            filter = new PorterDuffColorFilter(color, mode);
+            mTintFilters.put(color, filter);
+        }
+
+        mTintColor = color;
+        mTintMode = mode;
+        applyTint(filter);
+    }
+
+    /**
+     * Removes tint that was set via {@link #setTileTint(int, PorterDuff.Mode)}
+     */
+    public void clearTileTint() {
+        if (mTint != null) {
+            mTintMode = null;
+            applyTint(null);
+        }
+    }
+
+    private void applyTint(ColorFilter tint) {
+
+        mTint = tint;
+
+        if (mRenderer != null) {
+            mRenderer.setTint(tint);
+        }
+
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            mLayers.get(i).renderer.setTint(tint);
+        }
+
+        invalidateFrame();
+    }
+
+    /**
+     * Enables or disables tile cache. There is also an XML attribute `sbv_tileCache`.
+     * When enabled, a drawable that cannot be tiled with a shader (vector, layer, shape, etc)
+     * is rendered once into an offscreen bitmap holding a block of tiles, and this bitmap is tiled instead.
+     * Cache is re-rendered automatically when drawable bounds, state or level, or the size of this view change,
+     * or when drawable invalidates itself (for example when its color filter or alpha change)
+     * @param enabled to enable or disable tile cache
+     */
+    public void setTileCacheEnabled(boolean enabled) {
+        if (mTileCacheEnabled != enabled) {
+            mTileCacheEnabled = enabled;
+            if (mRenderer != null) {
+                mRenderer.setCacheEnabled(enabled);
+            }
+            for (int i = 0, size = mLayers.size(); i < size; i++) {
+                mLayers.get(i).renderer.setCacheEnabled(enabled);
+            }
+            invalidateFrame();
+        }
+    }
+
+    /**
+     * @return if tile cache is enabled
+     * @see #setTileCacheEnabled(boolean)
+     */
+    public boolean isTileCacheEnabled() {
+        return mTileCacheEnabled;
+    }
+
+    /**
+     * Scales tiles of the main drawable and all layers. There is also an XML attribute `sbv_tileScale`.
+     * Scale is applied with a transform, so drawables are not decoded or re-rendered again: changing scale
+     * on each frame (for example during a pinch-zoom gesture) costs the same as scrolling.
+     * Scroll values stay in pixels of this view, tiles are scaled relative to the top-left corner
+     * of the scrolled content
+     * @param scale positive scale factor, `1.F` to draw tiles with their own size
+     */
+    public void setTileScale(float scale) {
+        checkTileScale(scale);
+        if (Float.compare(mTileScale, scale) != 0) {
+            mTileScale = scale;
+            if (mRenderer != null) {
+                mRenderer.setScale(scale);
+            }
+            for (int i = 0, size = mLayers.size(); i < size; i++) {
+                mLayers.get(i).renderer.setScale(scale);
+            }
+            invalidateFrame();
+        }
+    }
+
+    /**
+     * @return current tile scale
+     * @see #setTileScale(float)
+     */
+    public float getTileScale() {
+        return mTileScale;
+    }
+
+    /**
+     * Transforms tiled pattern of the main drawable and all layers, for example a rotation for diagonal stripes.
+     * Scroll is still applied in pixels of this view on top of the transform.
+     * Bitmap tiles are drawn in one pass with a transformed shader, other drawables are drawn tile by tile
+     * (only tiles that intersect visible area are drawn)
+     * @param matrix invertible affine transform (is copied), or NULL to remove transform
+     */
+    public void setPatternTransform(Matrix matrix) {
+
+        if (matrix != null) {
+            final float[] values = new float[9];
+            matrix.getValues(values);
+            if (Float.compare(values[Matrix.MPERSP_0], .0F) != 0
+                    || Float.compare(values[Matrix.MPERSP_1], .0F) != 0
+                    || Float.compare(values[Matrix.MPERSP_2], 1.F) != 0
+                    || !matrix.invert(new Matrix())) {
+                throw new IllegalArgumentException("Pattern transform must be an invertible affine matrix: " + matrix);
+            }
+            mPatternTransform = new Matrix(matrix);
+        } else {
+            mPatternTransform = null;
+        }
+
+        if (mRenderer != null) {
+            mRenderer.setPatternTransform(mPatternTransform);
+        }
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            mLayers.get(i).renderer.setPatternTransform(mPatternTransform);
+        }
+        invalidateFrame();
+    }
+
+    /**
+     * @return copy of current pattern transform or NULL if there is none
+     * @see #setPatternTransform(Matrix)
+     */
+    public Matrix getPatternTransform() {
+        return mPatternTransform != null ? new Matrix(mPatternTransform) : null;
+    }
+
+    /**
+     * Lays tiles of the main drawable and all layers out with an offset: each row ({@link #TILE_LAYOUT_BRICK_X})
+     * or column ({@link #TILE_LAYOUT_HALF_DROP_Y}) is shifted by `offset` of a tile relative to the previous one,
+     * so brick and half-drop patterns do not need double-size assets. One period of the layout is pre-rendered
+     * once into an offscreen bitmap which is then tiled as a plain grid, so drawing cost stays the same.
+     * Offset is approximated by a fraction with denominator up to 12 (1/2, 1/3, 1/4, etc are exact), which is also
+     * the maximum number of tiles in a period. Hardware tiles cannot be pre-rendered, so a drawable resource
+     * is reloaded when layout switches between a plain grid and an offset one while hardware tiles are enabled.
+     * There are also XML attributes `sbv_tileLayout` and `sbv_tileLayoutOffset`
+     * @param layout {@link #TILE_LAYOUT_GRID}, {@link #TILE_LAYOUT_BRICK_X} or {@link #TILE_LAYOUT_HALF_DROP_Y}
+     * @param offset fraction of a tile side in range [0, 1), ignored for a plain grid
+     */
+    public void setTileLayout(int layout, float offset) {
+        checkTileLayout(layout);
+        checkTileLayoutOffset(offset);
+        if (mTileLayout != layout
+                || Float.compare(mTileLayoutOffset, offset) != 0) {
+            final boolean hardwareAllowed = isHardwareTileAllowed();
+            mTileLayout = layout;
+            mTileLayoutOffset = offset;
+            if (mRenderer != null) {
+                mRenderer.setLayout(layout, offset);
+            }
+            for (int i = 0, size = mLayers.size(); i < size; i++) {
+                mLayers.get(i).renderer.setLayout(layout, offset);
+            }
+            // loaded hardware bitmap cannot be drawn into an offset tile (and a software one is redundant for a grid)
+            if (mTileDecoder.isHardware()
+                    && hardwareAllowed != isHardwareTileAllowed()) {
+                reloadDrawableResource();
+            }
+            invalidateFrame();
+        }
+    }
+
+    /**
+     * Sets layout with a half tile offset
+     * @param layout {@link #TILE_LAYOUT_GRID}, {@link #TILE_LAYOUT_BRICK_X} or {@link #TILE_LAYOUT_HALF_DROP_Y}
+     * @see #setTileLayout(int, float)
+     */
+    public void setTileLayout(int layout) {
+        setTileLayout(layout, .5F);
+    }
+
+    /**
+     * @return current tile layout
+     * @see #setTileLayout(int, float)
+     */
+    public int getTileLayout() {
+        return mTileLayout;
+    }
+
+    /**
+     * @return offset of current tile layout
+     * @see #setTileLayout(int, float)
+     */
+    public float getTileLayoutOffset() {
+        return mTileLayoutOffset;
+    }
+
+    private static int checkTileLayout(int layout) {
+        if (layout != TILE_LAYOUT_GRID
+                && layout != TILE_LAYOUT_BRICK_X
+                && layout != TILE_LAYOUT_HALF_DROP_Y) {
+            throw new IllegalArgumentException("Unknown tile layout: " + layout);
+        }
+        return layout;
+    }
+
+    private static float checkTileLayoutOffset(float offset) {
+        if (!(offset >= .0F && offset < 1.F)) {
+            throw new IllegalArgumentException("Tile layout offset must be in range [0, 1): " + offset);
+        }
+        return offset;
+    }
+
+    private static float checkTileScale(float scale) {
+        if (!(scale > .0F)
+                || Float.isInfinite(scale)) {
+            throw new IllegalArgumentException("Invalid tile scale: " + scale);
+        }
+        return scale;
+    }
+
+    /**
+     * Forces tile cache to be re-rendered on the next draw call. Has no effect if tile cache is disabled
+     * @see #setTileCacheEnabled(boolean)
+     */
+    public void invalidateTileCache() {
+        if (mRenderer != null) {
+            mRenderer.invalidateCache();
+        }
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            mLayers.get(i).renderer.invalidateCache();
+        }
+        invalidateFrame();
+    }
+
+    /**
+     *
+     * @param listener to be notified when the size changes, or NULL to stop listening
+     * @see OnSizeChangedListener
+     */
+    public void setOnSizeChangedListener(OnSizeChangedListener listener) {
+        this.mOnSizeChangedListener = listener;
+    }
+
+    @Override
+    public void scrollBy(int x, int y) {
+        if (y != 0 || x != 0) {
+            mScrollX += x;
+            mScrollY += y;
+            invalidateScroll();
+        }
+    }
+
+    /**
+     * Stops a running fling ({@link #fling(float, float)}) at the current position
+     * @see #stopFling()
+     */
+    @Override
+    public void scrollTo(int x, int y) {
+        stopFling();
+        if (mScrollY != y
+                || mScrollX != x) {
+            mScrollX = x;
+            mScrollY = y;
+            invalidateScroll();
+        }
+    }
+
+    /**
+     * Starts (or stops if both values are 0) scrolling this view with a constant velocity.
+     * Position is calculated from frame time, so speed stays the same no matter how many frames are dropped.
+     * Scrolling is paused while this view cannot be seen (see {@link #isActive()}) and, when resumed,
+     * catches up to the position it would have reached.
+     * Manual calls to {@link #scrollBy(int, int)} and {@link #scrollTo(int, int)} are still applied
+     * @param dxPerSecond horizontal velocity in pixels per second, negative values are OK
+     * @param dyPerSecond vertical velocity in pixels per second, negative values are OK
+     */
+    public void setScrollVelocity(float dxPerSecond, float dyPerSecond) {
+        mAutoScroller.setVelocity(dxPerSecond, dyPerSecond);
+    }
+
+    /**
+     * @return current horizontal velocity in pixels per second
+     * @see #setScrollVelocity(float, float)
+     */
+    public float scrollVelocityX() {
+        return mAutoScroller.velocityX();
+    }
+
+    /**
+     * @return current vertical velocity in pixels per second
+     * @see #setScrollVelocity(float, float)
+     */
+    public float scrollVelocityY() {
+        return mAutoScroller.velocityY();
+    }
+
+    /**
+     * Moves this view with a decaying velocity, the same way scrolling containers move after a fling gesture.
+     * Position is advanced on each frame with {@link #scrollBy(int, int)} calls (so a fling adds to
+     * {@link #setScrollVelocity(float, float)} and manual scroll). Another fling in the same direction
+     * adds to the current velocity. Fling is stopped by {@link #scrollTo(int, int)} and {@link #stopFling()}.
+     * Like velocity scrolling it is paused while this view is not active and catches up when resumed
+     * @param velocityX horizontal velocity in pixels per second, negative values are OK
+     * @param velocityY vertical velocity in pixels per second, negative values are OK
+     * @see #setFlingFriction(float)
+     */
+    public void fling(float velocityX, float velocityY) {
+        flinger().fling((int) velocityX, (int) velocityY);
+    }
+
+    /**
+     * Stops a running fling at the current position, no-op if there is no fling
+     * @see #fling(float, float)
+     */
+    public void stopFling() {
+        if (mFlinger != null) {
+            mFlinger.stop();
+        }
+    }
+
+    /**
+     * @return if this view is moved by a fling
+     * @see #fling(float, float)
+     */
+    public boolean isFlinging() {
+        return mFlinger != null && mFlinger.isFlinging();
+    }
+
+    /**
+     * @param friction deceleration of flings, {@link android.view.ViewConfiguration#getScrollFriction()} by default
+     * @see #fling(float, float)
+     */
+    public void setFlingFriction(float friction) {
+        flinger().setFriction(friction);
+    }
+
+    private Flinger flinger() {
+        if (mFlinger == null) {
+            mFlinger = new Flinger(getContext(), this);
+            mFlinger.setActive(mActive);
+        }
+        return mFlinger;
+    }
+
+    /**
+     * @return total number of redraws that were requested by this view (scroll changes, drawable changes, etc)
+     * @see #invalidationsPerformed()
+     */
+    public long invalidationsRequested() {
+        return mInvalidationsRequested;
+    }
+
+    /**
+     * Scroll changes that do not change tile phase (scroll modulo tile size) do not redraw
+     * this view, and all changes that happen before the next frame are merged into one redraw
+     * @return total number of redraws that were actually scheduled by this view
+     * @see #invalidationsRequested()
+     */
+    public long invalidationsPerformed() {
+        return mInvalidationsPerformed;
+    }
+
+    /**
+     * Enables collection of {@link RenderStats}. Stats are kept in primitive fields, so enabled
+     * stats allocate nothing per frame. Disabling stats discards collected values
+     * @param enabled to enable or disable render stats
+     * @see #renderStats(RenderStats)
+     * @see #setOnRenderStatsListener(OnRenderStatsListener)
+     */
+    public void setRenderStatsEnabled(boolean enabled) {
+        if (enabled) {
+            if (mRenderStats == null) {
+                mRenderStats = new RenderStats();
+            }
+        } else {
+            mRenderStats = null;
+        }
+    }
+
+    /**
+     * @return if render stats are collected
+     * @see #setRenderStatsEnabled(boolean)
+     */
+    public boolean isRenderStatsEnabled() {
+        return mRenderStats != null;
+    }
+
+    /**
+     * Copies current stats into supplied instance (so it can be reused between calls)
+     * @param out to hold the copy
+     * @return if stats are enabled (otherwise `out` is not modified)
+     */
+    public boolean renderStats(RenderStats out) {
+        if (mRenderStats == null) {
+            return false;
+        }
+        out.set(mRenderStats);
+        return true;
+    }
+
+    /**
+     * Resets all collected counters (if stats are enabled)
+     */
+    public void resetRenderStats() {
+        if (mRenderStats != null) {
+            mRenderStats.reset();
+        }
+    }
+
+    /**
+     * @param listener to be notified after each draw call, or NULL to stop listening.
+     *                 Is not notified if stats are disabled
+     * @see #setRenderStatsEnabled(boolean)
+     */
+    public void setOnRenderStatsListener(OnRenderStatsListener listener) {
+        this.mOnRenderStatsListener = listener;
+    }
+
+    // redraws only if tile phase has changed
+    private void invalidateScroll() {
+        if (isPhaseChanged()) {
+            invalidateFrame();
+        } else {
+            mInvalidationsRequested += 1;
+            if (mRenderStats != null) {
+                mRenderStats.onInvalidationRequested(false);
+            }
+        }
+    }
+
+    private boolean isPhaseChanged() {
+
+        final int scrollX = mScrollX;
+        final int scrollY = mScrollY;
+
+        if (mRenderer != null
+                && mRenderer.isPhaseChanged(scrollX, scrollY)) {
+            return true;
+        }
+
+        TileLayer layer;
+
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            layer = mLayers.get(i);
+            if (layer.renderer.isPhaseChanged(layer.scrollX(scrollX), layer.scrollY(scrollY))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private TileRenderer createRenderer(Drawable drawable) {
+        final Rect rect = drawable.getBounds();
+        if (rect == null
+                || rect.isEmpty()) {
+            drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        }
+        drawable.setCallback(this);
+        drawable.setVisible(mMotionEnabled, false);
+        final TileRenderer renderer = new TileRenderer(drawable);
+        renderer.setCacheEnabled(mTileCacheEnabled);
+        renderer.setTint(mTint);
+        renderer.setScale(mTileScale);
+        renderer.setPatternTransform(mPatternTransform);
+        renderer.setLayout(mTileLayout, mTileLayoutOffset);
+        return renderer;
+    }
+
+    private void disposeRenderer(TileRenderer renderer) {
+        final Drawable drawable = renderer.drawable();
+        if (drawable.getCallback() == this) {
+            drawable.setCallback(null);
+        }
+        drawable.setVisible(false, false);
+        renderer.release();
+    }
+
+    private TileRenderer findRenderer(Drawable drawable) {
+
+        if (mRenderer != null
+                && mRenderer.drawable() == drawable) {
+            return mRenderer;
+        }
+
+        TileRenderer renderer;
+
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            renderer = mLayers.get(i).renderer;
+            if (renderer.drawable() == drawable) {
+                return renderer;
+            }
+        }
+
+        return null;
+    }
+
+    // pauses all work (auto scroll, animated drawables, redraws) when this view cannot be seen
+    private void updateActiveState() {
+
+        // can be called from super constructor (visibility from XML)
+        if (mLayers == null) {
+            return;
+        }
+
+        final boolean active = mAttached
+                && isShown()
+                && getWindowVisibility() == VISIBLE
+                && (!mPauseOnWindowFocusLoss || hasWindowFocus());
+
+        if (mActive == active) {
+            return;
+        }
+
+        mActive = active;
+
+        updateMotion();
+
+        if (mFlinger != null) {
+            mFlinger.setActive(active);
+        }
+
+        if (active) {
+            // a redraw that was scheduled before pausing might have never happened
+            final boolean redraw = mInvalidationDropped || mInvalidationPending;
+            mInvalidationDropped = false;
+            mInvalidationPending = false;
+            if (redraw) {
+                invalidateFrame();
+            }
+        }
+
+        if (mActiveStateObserver != null) {
+            mActiveStateObserver.onActiveStateChanged(this, active);
+        }
+
+        if (mOnActiveStateChangedListener != null) {
+            mOnActiveStateChangedListener.onActiveStateChanged(this, active);
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return findRenderer(who) != null || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void invalidateDrawable(Drawable drawable) {
+        final TileRenderer renderer = findRenderer(drawable);
+        if (renderer != null) {
+            // merged with scroll changes into one redraw per frame
+            renderer.onDrawableInvalidated();
+            invalidateFrame();
+        } else {
+            super.invalidateDrawable(drawable);
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+
+        updateActiveState();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+
+        updateActiveState();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+
+        updateActiveState();
+    }
+
+    private void invalidateFrame() {
+        mInvalidationsRequested += 1;
+        if (!mActive) {
+            mInvalidationDropped = true;
+        }
+        final boolean perform = mActive && !mInvalidationPending;
+        if (perform) {
+            mInvalidationPending = true;
+            mInvalidationsPerformed += 1;
+            postInvalidateOnAnimation();
+        }
+        if (mRenderStats != null) {
+            mRenderStats.onInvalidationRequested(perform);
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        if (mOnSizeChangedListener != null) {
+            mOnSizeChangedListener.onSizeChanged(w, h);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        mAttached = true;
+        if (mLazyResId != 0) {
+            getViewTreeObserver().addOnPreDrawListener(mLazyLoadListener);
+        }
+        reacquireTileHandle();
+        updatePowerSaveMonitor();
+        updateActiveState();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        if (mLazyResId != 0) {
+            getViewTreeObserver().removeOnPreDrawListener(mLazyLoadListener);
+        }
+        mAttached = false;
+        updatePowerSaveMonitor();
+        updateActiveState();
+        releaseTileHandle();
+
+        // offscreen bitmaps will be re-created when (and if) this view is drawn again
+        if (mRenderer != null) {
+            mRenderer.release();
+        }
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            mLayers.get(i).renderer.release();
+        }
+    }
+
+    /**
+     * Getter for current {@link #mScrollX}
+     * @return current {@link #mScrollX}
+     */
+    public int scrollX() {
+        return mScrollX;
+    }
+
+    /**
+     * Getter for current {@link #mScrollY}
+     * @return current {@link #mScrollY}
+     */
+    public int scrollY() {
+        return mScrollY;
+    }
+
+    /**
+     * Reports this view as opaque if it has no padding and main drawable is opaque (a bitmap without alpha channel
+     * or a drawable which opacity is {@link android.graphics.PixelFormat#OPAQUE}) and tile tint (if any)
+     * has an opaque color and a mode that keeps pixels opaque, as tiles fully cover this view.
+     * This lets the system skip drawing views behind this one.
+     * Please note that in this case a background of this view is fully covered by the tiles,
+     * so there is no point in having one
+     */
+    @Override
+    public boolean isOpaque() {
+        return isTileOpaque() || super.isOpaque();
+    }
+
+    private boolean isTileOpaque() {
+        return mRenderer != null
+                && mRenderer.isOpaque()
+                && (mTint == null || TileRenderer.isOpaqueTint(mTintColor, mTintMode))
+                && Float.compare(getAlpha(), 1.F) >= 0
+                // tiles are drawn only inside padded area
+                && getPaddingLeft() == 0
+                && getPaddingTop() == 0
+                && getPaddingRight() == 0
+                && getPaddingBottom() == 0;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+
+        final RenderStats stats = mRenderStats;
+        final long started = stats != null ? System.nanoTime() : 0L;
+
+        // to draw possible background, etc
+        super.onDraw(canvas);
+
+        mInvalidationPending = false;
+
+        if (stats == null) {
+            drawTiles(canvas, null);
+            return;
+        }
+
+        stats.onFrameStarted();
+        drawTiles(canvas, stats);
+
+        if (mRenderer != null) {
+            stats.onCacheBytes(mRenderer.cacheBytes());
+        }
+        if (mTileHandle != null) {
+            stats.onCacheBytes(mTileHandle.byteCount());
+        }
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            stats.onCacheBytes(mLayers.get(i).renderer.cacheBytes());
+        }
+
+        stats.onFrameFinished(System.nanoTime() - started);
+
+        if (mOnRenderStatsListener != null) {
+            mOnRenderStatsListener.onRenderStats(stats);
+        }
+    }
+
+    private void drawTiles(Canvas canvas, RenderStats stats) {
+
+        final int scrollX = mScrollX;
+        final int scrollY = mScrollY;
+
+        final int width = getWidth();
+        final int height = getHeight();
+
+        // only visible part of padded content area
+        final Rect area = mDrawingArea;
+        if (!canvas.getClipBounds(area)
+                || !area.intersect(getPaddingLeft(), getPaddingTop(), width - getPaddingRight(), height - getPaddingBottom())) {
+            return;
+        }
+
+        if (mRenderer != null) {
+            mRenderer.draw(canvas, scrollX, scrollY, width, height, area, stats);
+        } else if (mPlaceholderPaint != null
+                && isAsyncLoading()) {
+            canvas.drawRect(area, mPlaceholderPaint);
+        }
+
+        TileLayer layer;
+
+        for (int i = 0, size = mLayers.size(); i < size; i++) {
+            layer = mLayers.get(i);
+            layer.renderer.draw(canvas, layer.scrollX(scrollX), layer.scrollY(scrollY), width, height, area, stats);
+        }
     }
 }
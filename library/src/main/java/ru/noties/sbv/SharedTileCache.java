@@ -0,0 +1,347 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of tile bitmaps loaded from resources, shared by all {@link ScrollingBackgroundView}s
+ * that have it enabled ({@link ScrollingBackgroundView#setSharedTileCacheEnabled(boolean)}).
+ * Tiles are keyed by resource id, resolved resource file (so qualifiers like night mode are taken into account),
+ * screen density, theme (only for resources that can reference theme attributes) and decoding settings
+ * (memory budget, sample size, hardware bitmaps, pre-rendering of non-bitmap drawables),
+ * so opening the same screen again or a configuration change reuses an already decoded tile.
+ * Views hold reference-counted handles to tiles: a tile that is in use is never evicted,
+ * unused tiles are kept in a LRU list limited by {@link #maxSize()} bytes.
+ * Evicted bitmaps are not recycled (they can still be referenced by a drawable), they are simply released.
+ * Is thread-safe
+ */
+public class SharedTileCache {
+
+    private static SharedTileCache sInstance;
+
+    /**
+     * @return process-wide instance, by default limited to 1/16 of the maximum heap size
+     */
+    public static synchronized SharedTileCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new SharedTileCache((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16));
+        }
+        return sInstance;
+    }
+
+    private final Map<Key, Entry> mActive;
+
+    // access ordered, so the first entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> mInactive;
+
+    private int mMaxSize;
+    private int mInactiveSize;
+
+    private int mHitCount;
+    private int mMissCount;
+
+    SharedTileCache(int maxSize) {
+        mActive = new HashMap<>();
+        mInactive = new LinkedHashMap<>(8, .75F, true);
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Tiles that are in use are not counted towards this limit
+     * @param bytes maximum size of unused tiles
+     */
+    public synchronized void setMaxSize(int bytes) {
+        mMaxSize = Math.max(0, bytes);
+        trim();
+    }
+
+    /**
+     * @return maximum size of unused tiles in bytes
+     */
+    public synchronized int maxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * @return size in bytes of all tiles held by this cache (used and unused)
+     */
+    public synchronized int size() {
+        int size = mInactiveSize;
+        for (Entry entry : mActive.values()) {
+            size += entry.byteCount;
+        }
+        return size;
+    }
+
+    /**
+     * @return number of requests that were served by an already decoded tile
+     */
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return number of requests that required decoding
+     */
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Releases all tiles that are not in use
+     */
+    public synchronized void evictAll() {
+        mInactive.clear();
+        mInactiveSize = 0;
+    }
+
+    /**
+     * @return handle to a cached tile or NULL if tile is not cached and `loader` has returned NULL.
+     * Handle must be released when tile is no longer used
+     */
+    Handle acquire(Key key, Loader loader) {
+
+        synchronized (this) {
+            final Entry entry = obtain(key);
+            if (entry != null) {
+                mHitCount += 1;
+                return new Handle(entry);
+            }
+        }
+
+        // do not hold the lock while decoding
+        final Tile tile = loader.load();
+        if (tile == null) {
+            return null;
+        }
+
+        synchronized (this) {
+
+            // another caller could have loaded it meanwhile
+            Entry entry = obtain(key);
+            if (entry == null) {
+                mMissCount += 1;
+                entry = new Entry(key, tile);
+                entry.references = 1;
+                mActive.put(key, entry);
+            } else {
+                mHitCount += 1;
+            }
+
+            return new Handle(entry);
+        }
+    }
+
+    // returns entry with incremented references or NULL
+    private Entry obtain(Key key) {
+
+        Entry entry = mActive.get(key);
+        if (entry != null) {
+            entry.references += 1;
+            return entry;
+        }
+
+        entry = mInactive.remove(key);
+        if (entry != null) {
+            mInactiveSize -= entry.byteCount;
+            entry.references = 1;
+            mActive.put(key, entry);
+        }
+
+        return entry;
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.references -= 1;
+        if (entry.references == 0) {
+            mActive.remove(entry.key);
+            mInactive.put(entry.key, entry);
+            mInactiveSize += entry.byteCount;
+            trim();
+        }
+    }
+
+    private void trim() {
+        final Iterator<Entry> iterator = mInactive.values().iterator();
+        Entry entry;
+        while (mInactiveSize > mMaxSize && iterator.hasNext()) {
+            entry = iterator.next();
+            iterator.remove();
+            mInactiveSize -= entry.byteCount;
+        }
+    }
+
+    /**
+     * Decoded tile: bitmap and the size it must be drawn with
+     */
+    static class Tile {
+
+        final Bitmap bitmap;
+        final int width;
+        final int height;
+
+        Tile(Bitmap bitmap, int width, int height) {
+            this.bitmap = bitmap;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    interface Loader {
+        /**
+         * Is called without holding cache lock
+         * @return loaded tile or NULL
+         */
+        Tile load();
+    }
+
+    static class Key {
+
+        private final int resId;
+        private final String path;
+        private final int density;
+        private final int memoryBudget;
+        private final int sampleSize;
+        private final boolean hardware;
+        private final boolean rasterize;
+
+        // themes are compared by identity and are not kept alive by the cache
+        private final WeakReference<Resources.Theme> theme;
+        private final int themeHash;
+
+        /**
+         * @param path resolved resource file or NULL if resource is not a file
+         * @param theme that resource depends on or NULL if it does not depend on theme
+         */
+        Key(
+                int resId,
+                String path,
+                Resources.Theme theme,
+                int density,
+                int memoryBudget,
+                int sampleSize,
+                boolean hardware,
+                boolean rasterize) {
+            this.resId = resId;
+            this.path = path;
+            this.theme = theme != null ? new WeakReference<>(theme) : null;
+            this.themeHash = System.identityHashCode(theme);
+            this.density = density;
+            this.memoryBudget = memoryBudget;
+            this.sampleSize = sampleSize;
+            this.hardware = hardware;
+            this.rasterize = rasterize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final Key key = (Key) o;
+
+            return resId == key.resId
+                    && density == key.density
+                    && memoryBudget == key.memoryBudget
+                    && sampleSize == key.sampleSize
+                    && hardware == key.hardware
+                    && rasterize == key.rasterize
+                    && (path != null ? path.equals(key.path) : key.path == null)
+                    && themeHash == key.themeHash
+                    && sameTheme(key);
+        }
+
+        private boolean sameTheme(Key key) {
+            if (theme == null || key.theme == null) {
+                return theme == key.theme;
+            }
+            // collected theme matches nothing, such an entry will be evicted eventually
+            final Resources.Theme value = theme.get();
+            return value != null
+                    && value == key.theme.get();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resId;
+            result = 31 * result + (path != null ? path.hashCode() : 0);
+            result = 31 * result + themeHash;
+            result = 31 * result + density;
+            result = 31 * result + memoryBudget;
+            result = 31 * result + sampleSize;
+            result = 31 * result + (hardware ? 1 : 0);
+            result = 31 * result + (rasterize ? 1 : 0);
+            return result;
+        }
+    }
+
+    private static class Entry {
+
+        final Key key;
+        final Tile tile;
+        final int byteCount;
+
+        int references;
+
+        Entry(Key key, Tile tile) {
+            this.key = key;
+            this.tile = tile;
+            this.byteCount = tile.bitmap.getByteCount();
+        }
+    }
+
+    /**
+     * Reference to a cached tile, must be released exactly once
+     */
+    class Handle {
+
+        private final Entry mEntry;
+        private boolean mReleased;
+
+        Handle(Entry entry) {
+            mEntry = entry;
+        }
+
+        Tile tile() {
+            return mEntry.tile;
+        }
+
+        Key key() {
+            return mEntry.key;
+        }
+
+        int byteCount() {
+            return mEntry.byteCount;
+        }
+
+        void release() {
+            if (!mReleased) {
+                mReleased = true;
+                SharedTileCache.this.release(mEntry);
+            }
+        }
+    }
+}
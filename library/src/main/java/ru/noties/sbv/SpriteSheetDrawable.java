@@ -0,0 +1,256 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+
+/**
+ * Animated drawable backed by a sprite sheet (atlas): one bitmap that holds all frames
+ * of an animation laid out in a grid (left to right, top to bottom).
+ * Current frame is calculated from the time elapsed since {@link #start()}, so animation
+ * speed does not depend on how often it is drawn.
+ * When used with {@link ScrollingBackgroundView} current frame is copied from the atlas into one
+ * reused frame-sized bitmap each time frame changes and is shared by all tiles, so memory
+ * is the atlas plus one frame.
+ * Animation is not started automatically, call {@link #start()}
+ */
+public class SpriteSheetDrawable extends Drawable implements Animatable, Runnable {
+
+    private final Bitmap mAtlas;
+    private final int mColumns;
+    private final int mFrameCount;
+    private final long mFrameDurationMillis;
+
+    private final int mFrameWidth;
+    private final int mFrameHeight;
+
+    private final Paint mPaint;
+    private final Rect mSrc;
+
+    // current frame copied from the atlas, created lazily
+    private Bitmap mFrameBitmap;
+    private Canvas mFrameCanvas;
+    private Rect mFrameRect;
+    private int mFrameBitmapIndex = -1;
+
+    private long mStartTimeMillis;
+    private boolean mRunning;
+
+    private int mFrame;
+
+    /**
+     * @param atlas bitmap that holds all frames
+     * @param columns number of frames in one row of the atlas
+     * @param rows number of rows in the atlas
+     * @param fps frames per second
+     */
+    public SpriteSheetDrawable(Bitmap atlas, int columns, int rows, float fps) {
+        this(atlas, columns, rows, columns * rows, fps);
+    }
+
+    /**
+     * @param atlas bitmap that holds all frames
+     * @param columns number of frames in one row of the atlas
+     * @param rows number of rows in the atlas
+     * @param frameCount total number of frames (if the last row is not full)
+     * @param fps frames per second
+     */
+    public SpriteSheetDrawable(Bitmap atlas, int columns, int rows, int frameCount, float fps) {
+
+        if (columns <= 0
+                || rows <= 0
+                || frameCount <= 0
+                || frameCount > columns * rows) {
+            throw new IllegalArgumentException("Invalid sprite sheet layout, columns: " + columns
+                    + ", rows: " + rows + ", frames: " + frameCount);
+        }
+
+        if (fps <= .0F) {
+            throw new IllegalArgumentException("Invalid fps: " + fps);
+        }
+
+        mAtlas = atlas;
+        mColumns = columns;
+        mFrameCount = frameCount;
+        mFrameDurationMillis = Math.max(1L, (long) (1000.F / fps + .5F));
+
+        mFrameWidth = atlas.getWidth() / columns;
+        mFrameHeight = atlas.getHeight() / rows;
+
+        mPaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+        mSrc = new Rect();
+    }
+
+    @Override
+    public void start() {
+        if (!mRunning) {
+            mRunning = true;
+            mStartTimeMillis = SystemClock.uptimeMillis() - (mFrame * mFrameDurationMillis);
+            // invisible drawable is scheduled when it becomes visible
+            if (isVisible()) {
+                run();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (mRunning) {
+            mRunning = false;
+            unscheduleSelf(this);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        if (mRunning) {
+            if (visible) {
+                if (changed || restart) {
+                    // continue from the time-correct frame, pending callback (if any) is replaced
+                    unscheduleSelf(this);
+                    run();
+                }
+            } else {
+                unscheduleSelf(this);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void run() {
+
+        if (!mRunning
+                || !isVisible()) {
+            return;
+        }
+
+        final long now = SystemClock.uptimeMillis();
+        final long elapsed = now - mStartTimeMillis;
+
+        final int frame = (int) ((elapsed / mFrameDurationMillis) % mFrameCount);
+        if (frame != mFrame) {
+            mFrame = frame;
+            invalidateSelf();
+        }
+
+        scheduleSelf(this, now + (mFrameDurationMillis - (elapsed % mFrameDurationMillis)));
+    }
+
+    /**
+     * @return index of the current frame
+     */
+    public int frame() {
+        return mFrame;
+    }
+
+    /**
+     * @return total number of frames
+     */
+    public int frameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Copies current frame from the atlas if it has changed since the last call. The same bitmap
+     * is returned for all frames, only its content changes
+     * @return bitmap of the current frame or NULL if atlas is a hardware bitmap (it cannot be copied)
+     */
+    Bitmap frameBitmap() {
+
+        if (TileDecoder.isHardware(mAtlas)) {
+            return null;
+        }
+
+        if (mFrameBitmap == null) {
+            mFrameBitmap = Bitmap.createBitmap(mFrameWidth, mFrameHeight, Bitmap.Config.ARGB_8888);
+            mFrameCanvas = new Canvas(mFrameBitmap);
+            mFrameRect = new Rect(0, 0, mFrameWidth, mFrameHeight);
+        }
+
+        final int frame = mFrame;
+        if (mFrameBitmapIndex != frame) {
+            final int left = (frame % mColumns) * mFrameWidth;
+            final int top = (frame / mColumns) * mFrameHeight;
+            mSrc.set(left, top, left + mFrameWidth, top + mFrameHeight);
+            mFrameBitmap.eraseColor(Color.TRANSPARENT);
+            mFrameCanvas.drawBitmap(mAtlas, mSrc, mFrameRect, null);
+            mFrameBitmapIndex = frame;
+        }
+
+        return mFrameBitmap;
+    }
+
+    Paint paint() {
+        return mPaint;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        final int frame = mFrame;
+        final int left = (frame % mColumns) * mFrameWidth;
+        final int top = (frame / mColumns) * mFrameHeight;
+        mSrc.set(left, top, left + mFrameWidth, top + mFrameHeight);
+        canvas.drawBitmap(mAtlas, mSrc, getBounds(), mPaint);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mFrameWidth;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mFrameHeight;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mPaint.getAlpha() != alpha) {
+            mPaint.setAlpha(alpha);
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return mAtlas.hasAlpha() || mPaint.getAlpha() < 255
+                ? PixelFormat.TRANSLUCENT
+                : PixelFormat.OPAQUE;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Offscreen bitmap that holds a block of `columns` x `rows` pre-rendered tiles.
+ * Is re-rendered only when drawable bounds, state or level, or the size of the view change
+ */
+class Supertile {
+
+    // the maximum side of a supertile in pixels, if a tile itself is bigger it will be used as is
+    static final int MAX_SIDE = 512;
+
+    private final int mMaxSide;
+
+    private final DrawableSnapshot mSnapshot;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    private int mColumns;
+    private int mRows;
+
+    // incremented each time bitmap is (re-)rendered
+    private int mRenders;
+
+    /**
+     * @param maxSide the maximum side of a supertile in pixels, 0 to hold exactly one tile
+     */
+    Supertile(int maxSide) {
+        mMaxSide = maxSide;
+        mSnapshot = new DrawableSnapshot();
+    }
+
+    /**
+     * @return up to date bitmap with pre-rendered tiles or NULL if there is nothing to render
+     */
+    Bitmap obtain(Drawable drawable, int viewWidth, int viewHeight) {
+
+        final Rect rect = drawable.getBounds();
+
+        final int tileWidth = rect.width();
+        final int tileHeight = rect.height();
+
+        if (tileWidth <= 0
+                || tileHeight <= 0) {
+            return null;
+        }
+
+        final int columns = count(viewWidth, tileWidth, mMaxSide);
+        final int rows = count(viewHeight, tileHeight, mMaxSide);
+
+        if (mBitmap == null
+                || mColumns != columns
+                || mRows != rows
+                || !mSnapshot.matches(drawable)) {
+            render(drawable, columns, rows);
+        }
+
+        return mBitmap;
+    }
+
+    void invalidate() {
+        mSnapshot.invalidate();
+    }
+
+    /**
+     * @return number of times this supertile has been rendered, lets callers tell
+     * if {@link #obtain(Drawable, int, int)} used cached bitmap
+     */
+    int renders() {
+        return mRenders;
+    }
+
+    /**
+     * @return bytes held by the bitmap (0 if there is none)
+     */
+    int byteCount() {
+        return mBitmap != null ? mBitmap.getByteCount() : 0;
+    }
+
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mCanvas = null;
+        }
+        mSnapshot.invalidate();
+    }
+
+    private void render(Drawable drawable, int columns, int rows) {
+
+        final Rect rect = drawable.getBounds();
+
+        final int tileWidth = rect.width();
+        final int tileHeight = rect.height();
+
+        final int width = tileWidth * columns;
+        final int height = tileHeight * rows;
+
+        if (mBitmap == null
+                || mBitmap.getWidth() != width
+                || mBitmap.getHeight() != height) {
+            if (mBitmap != null) {
+                mBitmap.recycle();
+            }
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        final Canvas canvas = mCanvas;
+        final int save = canvas.save();
+        try {
+
+            // tile content starts at drawable bounds' left & top
+            canvas.translate(-rect.left, -rect.top);
+
+            for (int x = 0; x < columns; x++) {
+                for (int y = 0; y < rows; y++) {
+                    drawable.draw(canvas);
+                    canvas.translate(.0F, tileHeight);
+                }
+                canvas.translate(tileWidth, -(tileHeight * rows));
+            }
+
+        } finally {
+            canvas.restoreToCount(save);
+        }
+
+        mSnapshot.update(drawable);
+        mColumns = columns;
+        mRows = rows;
+        mRenders += 1;
+    }
+
+    // how many tiles fit the view (at least one), limited by maxSide
+    private static int count(int viewSide, int tileSide, int maxSide) {
+        final int side = Math.min(viewSide, maxSide);
+        return Math.max(1, side / tileSide);
+    }
+}
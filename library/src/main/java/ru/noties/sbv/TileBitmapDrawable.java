@@ -0,0 +1,89 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.drawable.BitmapDrawable;
+
+/**
+ * BitmapDrawable for decoded tiles that keeps track of its own tint ({@link #setTintList(ColorStateList)}),
+ * which {@link BitmapDrawable} does not expose. This lets {@link TileRenderer} apply the tint to a shader paint
+ * instead of drawing the drawable itself
+ */
+class TileBitmapDrawable extends BitmapDrawable {
+
+    private ColorStateList mTint;
+    private PorterDuff.Mode mTintMode = PorterDuff.Mode.SRC_IN;
+
+    // for current state, NULL if there is no tint
+    private PorterDuffColorFilter mTintFilter;
+    private int mTintColor;
+
+    TileBitmapDrawable(Resources resources, Bitmap bitmap) {
+        super(resources, bitmap);
+    }
+
+    @Override
+    public void setTintList(ColorStateList tint) {
+        mTint = tint;
+        updateTintFilter();
+        super.setTintList(tint);
+    }
+
+    @Override
+    public void setTintMode(PorterDuff.Mode tintMode) {
+        mTintMode = tintMode;
+        updateTintFilter();
+        super.setTintMode(tintMode);
+    }
+
+    @Override
+    protected boolean onStateChange(int[] stateSet) {
+        updateTintFilter();
+        return super.onStateChange(stateSet);
+    }
+
+    /**
+     * @return filter that this drawable applies when its paint has no color filter, NULL if there is no tint
+     */
+    ColorFilter tintFilter() {
+        return mTintFilter;
+    }
+
+    /**
+     * @return if opaque pixels stay opaque with current tint (or there is no tint)
+     */
+    boolean isTintOpaque() {
+        return mTintFilter == null
+                || TileRenderer.isOpaqueTint(mTintColor, mTintMode);
+    }
+
+    private void updateTintFilter() {
+        if (mTint == null
+                || mTintMode == null) {
+            mTintFilter = null;
+        } else {
+            mTintColor = mTint.getColorForState(getState(), mTint.getDefaultColor());
+            mTintFilter = new PorterDuffColorFilter(mTintColor, mTintMode);
+        }
+    }
+}
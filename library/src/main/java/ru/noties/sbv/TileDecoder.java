@@ -0,0 +1,228 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+
+/**
+ * Decodes bitmap tiles from resources within a memory budget:
+ * <ul>
+ *     <li>tiles without alpha channel are decoded as {@link Bitmap.Config#RGB_565}</li>
+ *     <li>sample size is increased (by powers of 2) until decoded tile fits the budget</li>
+ *     <li>starting with API 26 tile can be decoded as a hardware bitmap (stored in GPU memory only)</li>
+ * </ul>
+ * Decoded tile keeps the size it would have without sampling, so it is tiled with the same
+ * step, only with a lower resolution
+ */
+class TileDecoder {
+
+    private static final Bitmap.Config HARDWARE = hardwareConfig();
+
+    // bytes per pixel for images that are known to be opaque (RGB_565) and all others (ARGB_8888)
+    private static final int BYTES_OPAQUE = 2;
+    private static final int BYTES_ALPHA = 4;
+
+    private int mMemoryBudget;
+    private int mSampleSize = 1;
+    private boolean mHardware;
+
+    /**
+     * @param bytes maximum size of a decoded tile, 0 for no limit
+     */
+    void setMemoryBudget(int bytes) {
+        mMemoryBudget = Math.max(0, bytes);
+    }
+
+    int memoryBudget() {
+        return mMemoryBudget;
+    }
+
+    /**
+     * @param sampleSize minimum sample size, budget can increase it further
+     */
+    void setSampleSize(int sampleSize) {
+        mSampleSize = Math.max(1, sampleSize);
+    }
+
+    int sampleSize() {
+        return mSampleSize;
+    }
+
+    void setHardware(boolean hardware) {
+        mHardware = hardware;
+    }
+
+    boolean isHardware() {
+        return mHardware;
+    }
+
+    /**
+     * @return if supplied bitmap is a hardware one (it cannot be drawn on a software canvas)
+     */
+    static boolean isHardware(Bitmap bitmap) {
+        return HARDWARE != null
+                && bitmap != null
+                && bitmap.getConfig() == HARDWARE;
+    }
+
+    /**
+     * @return copy of current settings (can be used on another thread)
+     */
+    TileDecoder copy() {
+        final TileDecoder decoder = new TileDecoder();
+        decoder.mMemoryBudget = mMemoryBudget;
+        decoder.mSampleSize = mSampleSize;
+        decoder.mHardware = mHardware;
+        return decoder;
+    }
+
+    /**
+     * @return if decoding differs from a regular resource decoding
+     */
+    boolean isConfigured() {
+        return mMemoryBudget > 0
+                || mSampleSize > 1
+                || mHardware;
+    }
+
+    /**
+     * @param allowHardware if a hardware bitmap can be used (it cannot be drawn on a software canvas)
+     * @return decoded tile or NULL if resource is not a bitmap (vector, shape, etc)
+     */
+    BitmapDrawable decode(Resources resources, int resId, boolean allowHardware) {
+
+        final SharedTileCache.Tile tile = decodeTile(resources, resId, allowHardware);
+        if (tile == null) {
+            return null;
+        }
+
+        final BitmapDrawable drawable = new TileBitmapDrawable(resources, tile.bitmap);
+        // keep unsampled size, shader will scale bitmap to these bounds
+        drawable.setBounds(0, 0, tile.width, tile.height);
+        return drawable;
+    }
+
+    /**
+     * @return decoded tile or NULL if resource is not a bitmap (vector, shape, etc)
+     * @see #decode(Resources, int, boolean)
+     */
+    SharedTileCache.Tile decodeTile(Resources resources, int resId, boolean allowHardware) {
+
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+
+        // reported size is already scaled to the screen density
+        final int width = options.outWidth;
+        final int height = options.outHeight;
+
+        if (width <= 0
+                || height <= 0) {
+            return null;
+        }
+
+        // jpeg has no alpha channel, for other formats decoder falls back to ARGB_8888 if image has alpha
+        final int bytesPerPixel = "image/jpeg".equals(options.outMimeType)
+                ? BYTES_OPAQUE
+                : BYTES_ALPHA;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(width, height, bytesPerPixel, mSampleSize, mMemoryBudget);
+
+        if (mHardware
+                && allowHardware
+                && HARDWARE != null) {
+            options.inPreferredConfig = HARDWARE;
+        } else if (mMemoryBudget > 0) {
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+        }
+
+        final Bitmap bitmap = BitmapFactory.decodeResource(resources, resId, options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        return new SharedTileCache.Tile(bitmap, width, height);
+    }
+
+    /**
+     * Renders a static drawable (vector, shape, etc) into a bitmap of its intrinsic size.
+     * Drawable is mutated before it is drawn
+     * @return rendered tile or NULL if drawable is animated or has no intrinsic size
+     */
+    static SharedTileCache.Tile rasterize(Drawable drawable) {
+
+        if (drawable instanceof Animatable) {
+            return null;
+        }
+
+        final int width = drawable.getIntrinsicWidth();
+        final int height = drawable.getIntrinsicHeight();
+
+        if (width <= 0
+                || height <= 0) {
+            return null;
+        }
+
+        // can be called on a background thread: constant state is shared with drawables used by the UI
+        final Drawable mutated = drawable.mutate();
+
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mutated.setBounds(0, 0, width, height);
+        mutated.draw(new Canvas(bitmap));
+
+        return new SharedTileCache.Tile(bitmap, width, height);
+    }
+
+    // smallest power of 2 (not less than `minimum`) that makes image fit the budget
+    private static int sampleSize(int width, int height, int bytesPerPixel, int minimum, int budget) {
+
+        int sampleSize = 1;
+        while (sampleSize < minimum) {
+            sampleSize *= 2;
+        }
+
+        if (budget > 0) {
+            while (((long) (width / sampleSize)) * (height / sampleSize) * bytesPerPixel > budget
+                    && width / sampleSize > 1
+                    && height / sampleSize > 1) {
+                sampleSize *= 2;
+            }
+        }
+
+        return sampleSize;
+    }
+
+    // not available in compile sdk
+    private static Bitmap.Config hardwareConfig() {
+        if (Build.VERSION.SDK_INT >= 26) {
+            try {
+                return Bitmap.Config.valueOf("HARDWARE");
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+/**
+ * Additional tiled drawable that is drawn above the main one and scrolls
+ * with its own speed relative to the scroll position of the view
+ */
+class TileLayer {
+
+    final TileRenderer renderer;
+    final float speedX;
+    final float speedY;
+
+    TileLayer(TileRenderer renderer, float speedX, float speedY) {
+        this.renderer = renderer;
+        this.speedX = speedX;
+        this.speedY = speedY;
+    }
+
+    int scrollX(int scrollX) {
+        return (int) (scrollX * speedX);
+    }
+
+    int scrollY(int scrollY) {
+        return (int) (scrollY * speedY);
+    }
+}
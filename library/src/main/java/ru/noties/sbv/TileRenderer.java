@@ -0,0 +1,773 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.Gravity;
+
+import ru.noties.sbv.core.TileGeometry;
+
+/**
+ * Tiles one drawable over a rectangle. If drawable is a plain {@link BitmapDrawable}
+ * the whole area is filled with a single `drawRect` call backed by a repeating {@link BitmapShader},
+ * otherwise drawable is drawn tile by tile (or pre-rendered into a {@link Supertile} if cache is enabled).
+ * Offset layouts (brick, half-drop) are pre-rendered into an {@link OffsetTile} that is tiled as a plain grid.
+ * Animated drawables are rendered once per frame and the result is shared by all tiles
+ */
+class TileRenderer {
+
+    private final Drawable mDrawable;
+
+    private final Paint mPaint;
+    private final Matrix mMatrix;
+
+    private Bitmap mShaderBitmap;
+    private BitmapShader mShader;
+    private float mShaderScaleX;
+    private float mShaderScaleY;
+
+    private Supertile mSupertile;
+
+    // NULL for a plain grid
+    private OffsetTile mOffsetTile;
+
+    // drawable that has invalidated itself (animated or otherwise changing) is rendered
+    // once per change into a single tile, which is then shared by all tiles
+    private boolean mAnimated;
+    private Supertile mFrame;
+
+    // on API 21+ tint of a BitmapDrawable cannot be read, so such a drawable is drawn by its copy
+    // that repeats the bitmap itself (and applies own tint) in one operation, re-created when drawable changes
+    private BitmapDrawable mRepeatingCopy;
+    private Matrix mRepeatingInverse;
+    private RectF mRepeatingArea;
+    private Rect mRepeatingBounds;
+
+    // applied to shader paint instead of drawable's own color filter
+    private ColorFilter mTint;
+
+    // applied to tiles with a transform, drawable is not modified
+    private float mScale = 1.F;
+
+    // affine transform of the tiled plane (NULL if there is none), its inverse and the inverse of its linear part
+    private Matrix mPattern;
+    private Matrix mPatternInverse;
+    private double[] mPatternInverseLinear;
+
+    // visible area mapped into pattern space & vertical span of a column of tiles
+    private final float[] mQuad = new float[8];
+    private final float[] mSpan = new float[2];
+
+    // tile phase calculated by `phase`
+    private float mPhaseX;
+    private float mPhaseY;
+
+    // tile phase of the last draw call
+    private boolean mDrawn;
+    private float mDrawnStartX;
+    private float mDrawnStartY;
+
+    TileRenderer(Drawable drawable) {
+        mDrawable = drawable;
+        mPaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+        mMatrix = new Matrix();
+    }
+
+    Drawable drawable() {
+        return mDrawable;
+    }
+
+    /**
+     * @param width of the view (used to size offscreen caches)
+     * @param height of the view (used to size offscreen caches)
+     * @param area visible part of the view that must be filled with tiles, only tiles that
+     *             intersect this area are drawn
+     * @param stats to be updated with this draw call, can be NULL
+     */
+    void draw(Canvas canvas, int scrollX, int scrollY, int width, int height, Rect area, RenderStats stats) {
+
+        final Drawable drawable = mDrawable;
+
+        final Rect rect = drawable.getBounds();
+
+        final int drawableWidth = rect.width();
+        final int drawableHeight = rect.height();
+
+        // nothing to tile
+        if (drawableWidth <= 0
+                || drawableHeight <= 0) {
+            return;
+        }
+
+        // scroll stays in view pixels, so phase is calculated for scaled tile (or a period of an offset layout)
+        final float scale = mScale;
+        final int columns = mOffsetTile != null ? mOffsetTile.columns() : 1;
+        final int rows = mOffsetTile != null ? mOffsetTile.rows() : 1;
+        final float tileWidth = drawableWidth * columns * scale;
+        final float tileHeight = drawableHeight * rows * scale;
+
+        phase(scrollX, scrollY, tileWidth, tileHeight);
+
+        final float startX = mPhaseX;
+        final float startY = mPhaseY;
+
+        mDrawn = true;
+        mDrawnStartX = startX;
+        mDrawnStartY = startY;
+
+        final BitmapDrawable repeatingCopy = repeatingCopy(drawable);
+
+        final boolean oneOperation;
+        if (repeatingCopy != null) {
+            drawRepeatingCopy(canvas, repeatingCopy, rect, startX, startY, scale, area);
+            oneOperation = true;
+        } else if (prepareShader(drawable, width, height, stats) != null) {
+            drawShader(canvas, rect, startX, startY, scale, area);
+            oneOperation = true;
+        } else {
+            oneOperation = false;
+        }
+
+        if (oneOperation) {
+            if (stats != null) {
+                final int tiles = mPattern != null
+                        ? drawPatternTiles(null, drawable, startX, startY, scale, area)
+                        : visibleTiles(area, startX, startY, tileWidth, tileHeight) * columns * rows;
+                stats.onTilesDrawn(tiles, 1);
+            }
+            return;
+        }
+
+        if (mPattern != null) {
+            final int tiles = drawPatternTiles(canvas, drawable, startX, startY, scale, area);
+            if (stats != null) {
+                stats.onTilesDrawn(tiles, tiles);
+            }
+            return;
+        }
+
+        final int tiles = visibleTiles(area, startX, startY, tileWidth, tileHeight);
+
+        drawTiles(canvas, drawable, startX, startY, scale, area);
+        if (stats != null) {
+            stats.onTilesDrawn(tiles, tiles);
+        }
+    }
+
+    /**
+     * @return if tiles fully cover drawing area with opaque pixels: a bitmap without alpha channel
+     * or a drawable that reports {@link PixelFormat#OPAQUE}
+     */
+    boolean isOpaque() {
+
+        final Drawable drawable = mDrawable;
+
+        if (drawable.getBounds().isEmpty()) {
+            return false;
+        }
+
+        // own tint of a decoded tile can make it translucent
+        if (drawable instanceof TileBitmapDrawable
+                && !((TileBitmapDrawable) drawable).isTintOpaque()) {
+            return false;
+        }
+
+        // BitmapDrawable takes into account bitmap alpha channel & own alpha value
+        return drawable.getOpacity() == PixelFormat.OPAQUE;
+    }
+
+    /**
+     * @return if opaque pixels stay opaque after tint with supplied color and mode is applied
+     */
+    static boolean isOpaqueTint(int color, PorterDuff.Mode mode) {
+
+        if (Color.alpha(color) != 255) {
+            return false;
+        }
+
+        switch (mode) {
+            case CLEAR:
+            case SRC_OUT:
+            case DST_OUT:
+            case XOR:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return if drawing with supplied scroll values would produce a different result than the last draw call,
+     * as scroll values that are equal modulo tile size produce the same tile phase
+     */
+    boolean isPhaseChanged(int scrollX, int scrollY) {
+
+        if (!mDrawn) {
+            return true;
+        }
+
+        final Rect rect = mDrawable.getBounds();
+
+        final int drawableWidth = rect.width();
+        final int drawableHeight = rect.height();
+
+        if (drawableWidth <= 0
+                || drawableHeight <= 0) {
+            return false;
+        }
+
+        final int columns = mOffsetTile != null ? mOffsetTile.columns() : 1;
+        final int rows = mOffsetTile != null ? mOffsetTile.rows() : 1;
+
+        phase(scrollX, scrollY, drawableWidth * columns * mScale, drawableHeight * rows * mScale);
+
+        return Float.compare(mDrawnStartX, mPhaseX) != 0
+                || Float.compare(mDrawnStartY, mPhaseY) != 0;
+    }
+
+    /**
+     * Transforms tiled plane (rotation, skew, etc), scroll is applied in view pixels on top of it.
+     * Bitmaps are transformed with the shader matrix, other drawables are drawn tile by tile
+     * (only tiles that intersect the visible area mapped into pattern space)
+     * @param matrix invertible affine matrix or NULL to remove transform
+     */
+    void setPatternTransform(Matrix matrix) {
+
+        if (matrix == null) {
+            mPattern = null;
+            return;
+        }
+
+        if (mPattern == null) {
+            mPattern = new Matrix();
+            mPatternInverse = new Matrix();
+            mPatternInverseLinear = new double[4];
+        }
+
+        mPattern.set(matrix);
+        mPattern.invert(mPatternInverse);
+
+        final float[] values = new float[9];
+        matrix.getValues(values);
+
+        final double a = values[Matrix.MSCALE_X];
+        final double b = values[Matrix.MSKEW_X];
+        final double c = values[Matrix.MSKEW_Y];
+        final double d = values[Matrix.MSCALE_Y];
+        final double det = a * d - b * c;
+
+        mPatternInverseLinear[0] = d / det;
+        mPatternInverseLinear[1] = -b / det;
+        mPatternInverseLinear[2] = -c / det;
+        mPatternInverseLinear[3] = a / det;
+    }
+
+    // calculates tile phase (mPhaseX & mPhaseY) for supplied scroll values
+    private void phase(int scrollX, int scrollY, float tileWidth, float tileHeight) {
+        if (mPattern == null) {
+            mPhaseX = TileGeometry.start(scrollX, tileWidth);
+            mPhaseY = TileGeometry.start(scrollY, tileHeight);
+        } else {
+            // scroll is mapped into pattern space and reduced there, as tiles repeat in pattern space
+            final double[] inverse = mPatternInverseLinear;
+            mPhaseX = TileGeometry.start(inverse[0] * scrollX + inverse[1] * scrollY, tileWidth);
+            mPhaseY = TileGeometry.start(inverse[2] * scrollX + inverse[3] * scrollY, tileHeight);
+        }
+    }
+
+    /**
+     * Scales tiles with a transform (shader matrix or canvas scale), so changing scale
+     * does not invalidate decoded bitmaps or offscreen caches
+     * @param scale positive scale factor
+     */
+    void setScale(float scale) {
+        mScale = scale;
+    }
+
+    /**
+     * Lays tiles out as a plain grid or with each row (column) shifted relative to the previous one.
+     * Offset layout is pre-rendered once into an {@link OffsetTile}, which is then tiled with a shader
+     * @param layout one of ScrollingBackgroundView.TILE_LAYOUT_* constants
+     * @param offset fraction of a tile side in range [0, 1), ignored for a plain grid
+     */
+    void setLayout(int layout, float offset) {
+        if (layout == ScrollingBackgroundView.TILE_LAYOUT_GRID) {
+            if (mOffsetTile != null) {
+                mOffsetTile.release();
+                mOffsetTile = null;
+            }
+        } else {
+            if (mOffsetTile == null) {
+                mOffsetTile = new OffsetTile();
+            }
+            mOffsetTile.setLayout(layout == ScrollingBackgroundView.TILE_LAYOUT_HALF_DROP_Y, offset);
+        }
+        // phase depends on the period
+        mDrawn = false;
+    }
+
+    /**
+     * Enables pre-rendering of drawables that cannot be drawn with a shader directly
+     * into an offscreen {@link Supertile}, which is then tiled with a shader
+     */
+    void setCacheEnabled(boolean enabled) {
+        if (enabled) {
+            if (mSupertile == null) {
+                mSupertile = new Supertile(Supertile.MAX_SIDE);
+            }
+        } else if (mSupertile != null) {
+            mSupertile.release();
+            mSupertile = null;
+        }
+    }
+
+    boolean isCacheEnabled() {
+        return mSupertile != null;
+    }
+
+    void invalidateCache() {
+        mRepeatingCopy = null;
+        if (mOffsetTile != null) {
+            mOffsetTile.invalidate();
+        }
+        if (mSupertile != null) {
+            mSupertile.invalidate();
+        }
+        if (mFrame != null) {
+            mFrame.invalidate();
+        }
+    }
+
+    /**
+     * Tints tiles without modifying the drawable. Tinted drawable that cannot be drawn with a shader
+     * directly is rendered into a single tile, which is then shared by all tiles
+     * @param tint filter or NULL to remove tint
+     */
+    void setTint(ColorFilter tint) {
+        mTint = tint;
+    }
+
+    /**
+     * Must be called when drawable invalidates itself. From this point drawable
+     * is treated as animated: each change is rendered once and shared by all tiles
+     */
+    void onDrawableInvalidated() {
+        mAnimated = true;
+        invalidateCache();
+    }
+
+    /**
+     * @return bytes held by offscreen bitmaps of this renderer
+     */
+    long cacheBytes() {
+        long bytes = 0L;
+        if (mOffsetTile != null) {
+            bytes += mOffsetTile.byteCount();
+        }
+        if (mSupertile != null) {
+            bytes += mSupertile.byteCount();
+        }
+        if (mFrame != null) {
+            bytes += mFrame.byteCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases offscreen resources (if any), they will be re-created on the next draw call
+     */
+    void release() {
+        mRepeatingCopy = null;
+        if (mOffsetTile != null) {
+            mOffsetTile.release();
+        }
+        if (mSupertile != null) {
+            mSupertile.release();
+        }
+        if (mFrame != null) {
+            mFrame.release();
+        }
+    }
+
+    // returns bitmap to be tiled with a shader (shader & paint are ready to be used)
+    // or NULL if drawable must be drawn tile by tile
+    private Bitmap prepareShader(Drawable drawable, int width, int height, RenderStats stats) {
+
+        final Bitmap bitmap;
+
+        final BitmapDrawable bitmapDrawable = mOffsetTile == null
+                ? plainBitmapDrawable(drawable)
+                : null;
+
+        // hardware bitmap cannot be drawn into an offscreen (software) bitmap
+        final boolean hardware = drawable instanceof BitmapDrawable
+                && TileDecoder.isHardware(((BitmapDrawable) drawable).getBitmap());
+
+        if (mOffsetTile != null) {
+
+            // drawn as a plain grid, view reloads own resources as software bitmaps for offset layouts
+            if (hardware) {
+                return null;
+            }
+
+            final int renders = mOffsetTile.renders();
+            bitmap = mOffsetTile.obtain(drawable);
+            if (bitmap == null) {
+                return null;
+            }
+
+            if (stats != null) {
+                stats.onCacheLookup(renders == mOffsetTile.renders());
+            }
+
+            // offset tile already has drawable's alpha & color filter applied
+            mShaderScaleX = mShaderScaleY = 1.F;
+            mPaint.setAlpha(255);
+            mPaint.setColorFilter(mTint);
+            mPaint.setFilterBitmap(true);
+
+        } else if (bitmapDrawable != null) {
+
+            bitmap = bitmapDrawable.getBitmap();
+
+            // drawable stretches bitmap to its bounds, so must we
+            final Rect rect = drawable.getBounds();
+            mShaderScaleX = (float) rect.width() / bitmap.getWidth();
+            mShaderScaleY = (float) rect.height() / bitmap.getHeight();
+
+            // keep alpha, color filter & tint in sync with the drawable (they can be changed at any time),
+            // drawable applies own tint only if there is no color filter
+            final Paint paint = bitmapDrawable.getPaint();
+            final ColorFilter colorFilter = paint.getColorFilter() != null
+                    ? paint.getColorFilter()
+                    : tintFilter(bitmapDrawable);
+            mPaint.setAlpha(paint.getAlpha());
+            mPaint.setColorFilter(mTint != null ? mTint : colorFilter);
+            mPaint.setFilterBitmap(paint.isFilterBitmap());
+
+        } else if (drawable instanceof SpriteSheetDrawable) {
+
+            final SpriteSheetDrawable spriteSheet = (SpriteSheetDrawable) drawable;
+
+            bitmap = spriteSheet.frameBitmap();
+            if (bitmap == null) {
+                return null;
+            }
+
+            final Rect rect = drawable.getBounds();
+            mShaderScaleX = (float) rect.width() / bitmap.getWidth();
+            mShaderScaleY = (float) rect.height() / bitmap.getHeight();
+
+            final Paint paint = spriteSheet.paint();
+            mPaint.setAlpha(paint.getAlpha());
+            mPaint.setColorFilter(mTint != null ? mTint : paint.getColorFilter());
+            mPaint.setFilterBitmap(paint.isFilterBitmap());
+
+        } else if (!hardware
+                && (mSupertile != null || mAnimated || mTint != null)) {
+
+            final Supertile supertile;
+            if (mSupertile != null) {
+                supertile = mSupertile;
+            } else {
+                if (mFrame == null) {
+                    mFrame = new Supertile(0);
+                }
+                supertile = mFrame;
+            }
+
+            final int renders = supertile.renders();
+            bitmap = supertile.obtain(drawable, width, height);
+            if (bitmap == null) {
+                return null;
+            }
+
+            if (stats != null) {
+                stats.onCacheLookup(renders == supertile.renders());
+            }
+
+            // supertile already has drawable's alpha & color filter applied
+            mShaderScaleX = mShaderScaleY = 1.F;
+            mPaint.setAlpha(255);
+            mPaint.setColorFilter(mTint);
+            mPaint.setFilterBitmap(true);
+
+        } else {
+            return null;
+        }
+
+        if (mShaderBitmap != bitmap) {
+            mShaderBitmap = bitmap;
+            mShader = new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+            mPaint.setShader(mShader);
+        }
+
+        return bitmap;
+    }
+
+    // returns up to date copy if drawable must be drawn by it, NULL otherwise
+    private BitmapDrawable repeatingCopy(Drawable drawable) {
+
+        // tint of the view replaces drawable's own one, decoded tiles expose their tint
+        if (mOffsetTile != null
+                || mTint != null
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP
+                || drawable instanceof TileBitmapDrawable) {
+            return null;
+        }
+
+        final BitmapDrawable bitmapDrawable = plainBitmapDrawable(drawable);
+        if (bitmapDrawable == null) {
+            return null;
+        }
+
+        if (mRepeatingCopy == null) {
+            // copy has current alpha, color filter & tint of the drawable, mutated so they are not shared
+            final BitmapDrawable copy = (BitmapDrawable) bitmapDrawable.getConstantState().newDrawable().mutate();
+            // bitmap pixels are mapped with canvas transform only
+            copy.setTargetDensity(copy.getBitmap().getDensity());
+            copy.setTileModeXY(Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+            mRepeatingCopy = copy;
+            if (mRepeatingInverse == null) {
+                mRepeatingInverse = new Matrix();
+                mRepeatingArea = new RectF();
+                mRepeatingBounds = new Rect();
+            }
+        }
+
+        // tint can depend on state
+        mRepeatingCopy.setState(drawable.getState());
+
+        return mRepeatingCopy;
+    }
+
+    private void drawRepeatingCopy(Canvas canvas, BitmapDrawable copy, Rect rect, float startX, float startY, float scale, Rect area) {
+
+        final Bitmap bitmap = copy.getBitmap();
+
+        // the same transform as the one of shader: bitmap repeats from the origin of the canvas
+        mMatrix.setScale(
+                (float) rect.width() / bitmap.getWidth() * scale,
+                (float) rect.height() / bitmap.getHeight() * scale
+        );
+        mMatrix.postTranslate(startX + rect.left * scale, startY + rect.top * scale);
+        if (mPattern != null) {
+            mMatrix.postConcat(mPattern);
+        }
+
+        // copy must cover visible area mapped into bitmap space
+        mMatrix.invert(mRepeatingInverse);
+        mRepeatingArea.set(area);
+        mRepeatingInverse.mapRect(mRepeatingArea);
+        mRepeatingArea.roundOut(mRepeatingBounds);
+        copy.setBounds(mRepeatingBounds);
+
+        final int save = canvas.save();
+        try {
+            canvas.clipRect(area);
+            canvas.concat(mMatrix);
+            copy.draw(canvas);
+        } finally {
+            canvas.restoreToCount(save);
+        }
+    }
+
+    private void drawShader(Canvas canvas, Rect rect, float startX, float startY, float scale, Rect area) {
+
+        mMatrix.setScale(mShaderScaleX * scale, mShaderScaleY * scale);
+        mMatrix.postTranslate(startX + rect.left * scale, startY + rect.top * scale);
+        if (mPattern != null) {
+            mMatrix.postConcat(mPattern);
+        }
+        mShader.setLocalMatrix(mMatrix);
+
+        canvas.drawRect(area, mPaint);
+    }
+
+    private static ColorFilter tintFilter(BitmapDrawable drawable) {
+        return drawable instanceof TileBitmapDrawable
+                ? ((TileBitmapDrawable) drawable).tintFilter()
+                : null;
+    }
+
+    // returns drawable as BitmapDrawable if it can be drawn with a shader, NULL otherwise
+    private static BitmapDrawable plainBitmapDrawable(Drawable drawable) {
+
+        if (!(drawable instanceof BitmapDrawable)) {
+            return null;
+        }
+
+        final BitmapDrawable bitmapDrawable = (BitmapDrawable) drawable;
+
+        // if tile modes or gravity are specified, drawable knows better how to draw itself
+        if (bitmapDrawable.getTileModeX() != null
+                || bitmapDrawable.getTileModeY() != null
+                || bitmapDrawable.getGravity() != Gravity.FILL) {
+            return null;
+        }
+
+        final Bitmap bitmap = bitmapDrawable.getBitmap();
+        if (bitmap == null
+                || bitmap.isRecycled()) {
+            return null;
+        }
+
+        return bitmapDrawable;
+    }
+
+    // number of tiles that intersect drawing area
+    private static int visibleTiles(Rect area, float startX, float startY, float tileWidth, float tileHeight) {
+        final int columns = TileGeometry.iterations(area.right, startX, tileWidth)
+                - TileGeometry.skip(area.left, startX, tileWidth);
+        final int rows = TileGeometry.iterations(area.bottom, startY, tileHeight)
+                - TileGeometry.skip(area.top, startY, tileHeight);
+        return Math.max(0, columns) * Math.max(0, rows);
+    }
+
+    // draws (if canvas is not NULL) tiles that intersect drawing area mapped into pattern space, returns number of tiles
+    private int drawPatternTiles(Canvas canvas, Drawable drawable, float startX, float startY, float scale, Rect area) {
+
+        final Rect rect = drawable.getBounds();
+
+        final int drawableHeight = rect.height();
+
+        final float tileWidth = rect.width() * scale;
+        final float tileHeight = drawableHeight * scale;
+
+        final float[] quad = mQuad;
+        quad[0] = area.left;
+        quad[1] = area.top;
+        quad[2] = area.right;
+        quad[3] = area.top;
+        quad[4] = area.right;
+        quad[5] = area.bottom;
+        quad[6] = area.left;
+        quad[7] = area.bottom;
+        mPatternInverse.mapPoints(quad);
+
+        final float minX = Math.min(Math.min(quad[0], quad[2]), Math.min(quad[4], quad[6]));
+        final float maxX = Math.max(Math.max(quad[0], quad[2]), Math.max(quad[4], quad[6]));
+
+        // pattern space is not limited to non-negative values
+        final int fromX = (int) Math.floor((minX - startX) / tileWidth);
+        final int toX = (int) Math.ceil((maxX - startX) / tileWidth);
+
+        final float[] span = mSpan;
+
+        int tiles = 0;
+
+        final int save = canvas != null ? canvas.save() : 0;
+        try {
+
+            if (canvas != null) {
+                canvas.clipRect(area);
+                canvas.concat(mPattern);
+            }
+
+            float left;
+            int fromY;
+            int toY;
+
+            for (int x = fromX; x < toX; x++) {
+
+                left = startX + x * tileWidth;
+
+                // only the part of this column that is inside the area
+                if (!TileGeometry.spanY(quad, left, left + tileWidth, span)) {
+                    continue;
+                }
+
+                fromY = (int) Math.floor((span[0] - startY) / tileHeight);
+                toY = (int) Math.ceil((span[1] - startY) / tileHeight);
+
+                tiles += toY - fromY;
+
+                if (canvas != null) {
+                    final int column = canvas.save();
+                    canvas.translate(left, startY + fromY * tileHeight);
+                    canvas.scale(scale, scale);
+                    for (int y = fromY; y < toY; y++) {
+                        drawable.draw(canvas);
+                        canvas.translate(.0F, drawableHeight);
+                    }
+                    canvas.restoreToCount(column);
+                }
+            }
+
+        } finally {
+            if (canvas != null) {
+                canvas.restoreToCount(save);
+            }
+        }
+
+        return tiles;
+    }
+
+    private static void drawTiles(Canvas canvas, Drawable drawable, float startX, float startY, float scale, Rect area) {
+
+        final Rect rect = drawable.getBounds();
+
+        final int drawableWidth = rect.width();
+        final int drawableHeight = rect.height();
+
+        final float tileWidth = drawableWidth * scale;
+        final float tileHeight = drawableHeight * scale;
+
+        // only tiles that intersect drawing area: [fromX, toX) & [fromY, toY)
+        final int fromX = TileGeometry.skip(area.left, startX, tileWidth);
+        final int toX = TileGeometry.iterations(area.right, startX, tileWidth);
+
+        final int fromY = TileGeometry.skip(area.top, startY, tileHeight);
+        final int toY = TileGeometry.iterations(area.bottom, startY, tileHeight);
+
+        final int iterationsY = toY - fromY;
+
+        final int save = canvas.save();
+        try {
+
+            // tiles at the edges can be partially outside of drawing area (padding)
+            canvas.clipRect(area);
+            canvas.translate(startX + (fromX * tileWidth), startY + (fromY * tileHeight));
+            canvas.scale(scale, scale);
+
+            for (int x = fromX; x < toX; x++) {
+                for (int y = fromY; y < toY; y++) {
+                    drawable.draw(canvas);
+                    canvas.translate(.0F, drawableHeight);
+                }
+                canvas.translate(drawableWidth, -(drawableHeight * iterationsY));
+            }
+
+        } finally {
+            canvas.restoreToCount(save);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *   Copyright 2016 Dimitry Ivanov (mail@dimitryivanov.ru)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package ru.noties.sbv;
+
+import android.graphics.Color;
+
+/**
+ * Color ramp (gradient between multiple colors) quantized to a fixed number of steps.
+ * All colors are calculated once, so {@link #color(float)} is a simple lookup.
+ * As a ramp produces a limited set of colors, it plays nicely with
+ * {@link ScrollingBackgroundView#setTileTint(int, android.graphics.PorterDuff.Mode)}
+ * which caches a filter for each color: animating tint with a ramp allocates nothing
+ * after each step has been used once
+ */
+public class TintRamp {
+
+    private final int[] mSteps;
+
+    /**
+     * @param colors to interpolate between (at least one)
+     * @param steps number of distinct colors in this ramp (at least 2)
+     */
+    public TintRamp(int[] colors, int steps) {
+
+        if (colors == null
+                || colors.length == 0) {
+            throw new IllegalArgumentException("At least one color must be supplied");
+        }
+
+        if (steps < 2) {
+            throw new IllegalArgumentException("Steps must be at least 2, supplied: " + steps);
+        }
+
+        mSteps = new int[steps];
+
+        final int last = colors.length - 1;
+
+        float position;
+        int index;
+        float fraction;
+
+        for (int i = 0; i < steps; i++) {
+            position = ((float) i / (steps - 1)) * last;
+            index = Math.min((int) position, last);
+            fraction = position - index;
+            mSteps[i] = index == last
+                    ? colors[last]
+                    : interpolate(colors[index], colors[index + 1], fraction);
+        }
+    }
+
+    /**
+     * @param ratio position in this ramp, will be clamped to [0, 1]
+     * @return quantized color at the specified position
+     */
+    public int color(float ratio) {
+        final float clamped = ratio < .0F ? .0F : (ratio > 1.F ? 1.F : ratio);
+        return mSteps[(int) (clamped * (mSteps.length - 1) + .5F)];
+    }
+
+    /**
+     * @return number of distinct colors in this ramp
+     */
+    public int steps() {
+        return mSteps.length;
+    }
+
+    private static int interpolate(int from, int to, float fraction) {
+        return Color.argb(
+                channel(Color.alpha(from), Color.alpha(to), fraction),
+                channel(Color.red(from), Color.red(to), fraction),
+                channel(Color.green(from), Color.green(to), fraction),
+                channel(Color.blue(from), Color.blue(to), fraction)
+        );
+    }
+
+    private static int channel(int from, int to, float fraction) {
+        return (int) (from + (to - from) * fraction + .5F);
+    }
+}